@@ -0,0 +1,79 @@
+package com.example.plantapp;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//keeps the last few preview frames with their sharpness so the shutter can take the best recent one
+//instead of asking the camera for a new frame, which restarts exposure and is often blurrier
+final class BestFrameSelector implements MjpegFrameParser.FrameListener {
+
+    //frames kept in the ring buffer
+    private static final int CAPACITY = 8;
+
+    private static final class Frame {
+        final byte[] jpeg;
+        final double sharpness;
+        final long timeMs;
+
+        Frame(byte[] jpeg, double sharpness, long timeMs) {
+            this.jpeg = jpeg;
+            this.sharpness = sharpness;
+            this.timeMs = timeMs;
+        }
+    }
+
+    private final Frame[] ring = new Frame[CAPACITY];
+    private int next = 0;
+
+    //frames are scored off the stream thread, one at a time, frames that arrive while busy are skipped
+    private final ExecutorService scorer = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean scoring = new AtomicBoolean(false);
+
+    //called on the stream thread for every complete frame
+    @Override
+    public void onFrame(byte[] jpeg) {
+        if (!scoring.compareAndSet(false, true)) return;
+        long timeMs = SystemClock.elapsedRealtime();
+        try {
+            scorer.execute(() -> {
+                try {
+                    double sharpness = SharpnessScorer.score(jpeg);
+                    if (sharpness >= 0) add(new Frame(jpeg, sharpness, timeMs));
+                } finally {
+                    scoring.set(false);
+                }
+            });
+        } catch (Exception e) {
+            scoring.set(false);
+        }
+    }
+
+    private synchronized void add(Frame frame) {
+        ring[next] = frame;
+        next = (next + 1) % CAPACITY;
+    }
+
+    //sharpest frame no older than maxAgeMs, null if there is none
+    synchronized byte[] sharpest(long maxAgeMs) {
+        long now = SystemClock.elapsedRealtime();
+        Frame best = null;
+        for (Frame f : ring) {
+            if (f == null || now - f.timeMs > maxAgeMs) continue;
+            if (best == null || f.sharpness > best.sharpness) best = f;
+        }
+        return best != null ? best.jpeg : null;
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < CAPACITY; i++) ring[i] = null;
+        next = 0;
+    }
+
+    void shutdown() {
+        scorer.shutdownNow();
+        clear();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.plantapp;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//shared decoder for images shown on screen: reads bounds first, subsamples to the target size,
+//decodes as RGB_565 (captures have no alpha) and reuses released bitmaps through inBitmap
+final class BitmapDecoder {
+
+    //bytes of released bitmaps kept around for reuse
+    private static final long MAX_POOL_BYTES = 8L * 1024L * 1024L;
+
+    //called on the main thread, bitmap is null if the bytes couldn't be decoded
+    interface Callback {
+        void onDecoded(Bitmap bitmap);
+    }
+
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private static final List<Bitmap> pool = new ArrayList<>();
+    private static long poolBytes = 0L;
+
+    private BitmapDecoder() {}
+
+    //decode off the main thread, sized so both edges stay at or above the requested size
+    static void decodeAsync(byte[] bytes, int reqWidth, int reqHeight, Callback callback) {
+        worker.execute(() -> {
+            Bitmap bitmap = decode(bytes, reqWidth, reqHeight);
+            mainHandler.post(() -> callback.onDecoded(bitmap));
+        });
+    }
+
+    //blocking decode, must not be called on the main thread
+    static Bitmap decode(byte[] bytes, int reqWidth, int reqHeight) {
+        if (bytes == null || bytes.length == 0) return null;
+
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, opts);
+        if (!prepare(opts, reqWidth, reqHeight)) return null;
+
+        try {
+            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, opts);
+        } catch (IllegalArgumentException e) {
+            //pooled bitmap didn't fit after all, decode into a fresh one
+            opts.inBitmap = null;
+            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, opts);
+        }
+    }
+
+    //blocking decode of a file, must not be called on the main thread
+    static Bitmap decode(File file, int reqWidth, int reqHeight) {
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), opts);
+        if (!prepare(opts, reqWidth, reqHeight)) return null;
+
+        try {
+            return BitmapFactory.decodeFile(file.getPath(), opts);
+        } catch (IllegalArgumentException e) {
+            opts.inBitmap = null;
+            return BitmapFactory.decodeFile(file.getPath(), opts);
+        }
+    }
+
+    //hand a bitmap back for reuse, only once nothing draws it anymore
+    static void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return;
+        if (!bitmap.isMutable()) {
+            bitmap.recycle();
+            return;
+        }
+        synchronized (pool) {
+            pool.add(bitmap);
+            poolBytes += bitmap.getAllocationByteCount();
+            //drop the oldest once over budget
+            while (poolBytes > MAX_POOL_BYTES && !pool.isEmpty()) {
+                Bitmap evicted = pool.remove(0);
+                poolBytes -= evicted.getAllocationByteCount();
+                evicted.recycle();
+            }
+        }
+    }
+
+    //fill in sample size, config and a reusable bitmap from the bounds, false if there is no image
+    private static boolean prepare(BitmapFactory.Options opts, int reqWidth, int reqHeight) {
+        if (opts.outWidth <= 0 || opts.outHeight <= 0) return false;
+
+        int sample = sampleSizeFor(opts.outWidth, opts.outHeight, reqWidth, reqHeight);
+        opts.inJustDecodeBounds = false;
+        opts.inSampleSize = sample;
+        opts.inPreferredConfig = Bitmap.Config.RGB_565;
+        opts.inMutable = true;
+
+        int width = (opts.outWidth + sample - 1) / sample;
+        int height = (opts.outHeight + sample - 1) / sample;
+        opts.inBitmap = takeReusable(width * height * 2);
+        return true;
+    }
+
+    //largest power of two that keeps both edges at or above the requested size, 0 means no limit on that edge
+    static int sampleSizeFor(int width, int height, int reqWidth, int reqHeight) {
+        int sample = 1;
+        if (reqWidth <= 0 && reqHeight <= 0) return sample;
+        while ((reqWidth <= 0 || width / (sample * 2) >= reqWidth)
+                && (reqHeight <= 0 || height / (sample * 2) >= reqHeight)) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    //smallest pooled bitmap with room for the decode, null if none fits
+    private static Bitmap takeReusable(int byteCount) {
+        synchronized (pool) {
+            Bitmap best = null;
+            for (Bitmap candidate : pool) {
+                int size = candidate.getAllocationByteCount();
+                if (size >= byteCount && (best == null || size < best.getAllocationByteCount())) {
+                    best = candidate;
+                }
+            }
+            if (best != null) {
+                pool.remove(best);
+                poolBytes -= best.getAllocationByteCount();
+            }
+            return best;
+        }
+    }
+}
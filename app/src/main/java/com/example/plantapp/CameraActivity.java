@@ -15,11 +15,10 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.view.TextureView;
 import android.view.View;
 import android.view.animation.AccelerateDecelerateInterpolator;
-import android.webkit.WebSettings;
-import android.webkit.WebView;
-import android.webkit.WebViewClient;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -36,13 +35,11 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
+import com.google.firebase.auth.FirebaseUser;
 
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -50,22 +47,36 @@ public class CameraActivity extends AppCompatActivity {
     //ESP32 cam
     private static final String ESP_SSID = "ESP32-CAM";
     private static final String ESP_PASS = "12345678";
-    private static final String ESP_BASE = "http://192.168.4.1";
     private static final int REQ_WIFI = 1001;
 
     //camera connection time out (ms)
     private static final long CONNECT_TIMEOUT_MS = 30_000L;
 
+    //only the ESP http client uses the ESP network, firebase and gemini keep the default internet network,
+    //which is already up or not, so only a short check is needed before uploading (ms)
+    private static final long INTERNET_CHECK_MS = 2_000L;
+
+    //frames pulled by a long press on the shutter
+    private static final int BURST_FRAMES = 5;
+
+    //a preview frame older than this isn't what the user was looking at when they pressed the shutter (ms)
+    private static final long MAX_FRAME_AGE_MS = 1_500L;
+
     private String userRole;
-    private WebView webView;
+    private TextureView previewView;
+    private MjpegPreview preview;
     private ImageButton shutterButton;
+    private TextView burstStatusText;
 
     private ConnectivityManager connectivityManager;
-    private ConnectivityManager.NetworkCallback networkCallback;
     private Network espNetwork;
+    private EspCameraClient espClient;
 
     private final ExecutorService io = Executors.newSingleThreadExecutor();
 
+    //sharpest recent frames from the preview stream, used by the shutter instead of /capture
+    private final BestFrameSelector frameSelector = new BestFrameSelector();
+
     //connecting animations
     private View connectingOverlay;
     private ImageView overlayLogo;
@@ -94,31 +105,27 @@ public class CameraActivity extends AppCompatActivity {
         });
 
         //main UI elements
-        webView = findViewById(R.id.webView);
+        previewView = findViewById(R.id.previewView);
         shutterButton = findViewById(R.id.ShutterButton);
         ImageButton backButton = findViewById(R.id.BackButton);
+        burstStatusText = findViewById(R.id.BurstStatusText);
 
         //find overlay views
         connectingOverlay = findViewById(R.id.cameraConnectingOverlay);
         overlayLogo       = findViewById(R.id.cameraOverlayLogo);
         overlayStatusText = findViewById(R.id.cameraOverlayStatusText);
 
-        if (webView == null || shutterButton == null || backButton == null) {
+        if (previewView == null || shutterButton == null || backButton == null) {
             Toast.makeText(this, "Missing views in activity_camera.xml", Toast.LENGTH_LONG).show();
             finish();
             return;
         }
 
-        //configure to display ESP32 view
-        webView.setWebViewClient(new WebViewClient());
-        WebSettings ws = webView.getSettings();
-        ws.setJavaScriptEnabled(true);
-        ws.setDomStorageEnabled(true);
-        ws.setLoadWithOverviewMode(true);
-        ws.setUseWideViewPort(true);
-        ws.setMixedContentMode(WebSettings.MIXED_CONTENT_ALWAYS_ALLOW);
+        //native ESP32 preview, the frames also feed the best frame selector
+        preview = new MjpegPreview(this, previewView, frameSelector);
 
         backButton.setOnClickListener(v -> {
+            releaseEspNetwork();
             startActivity(new Intent(CameraActivity.this, MainActivity.class));
             finish();
         });
@@ -129,6 +136,14 @@ public class CameraActivity extends AppCompatActivity {
             captureFromEsp();
         });
 
+        //burst capture, frames are identified and saved in the background so shooting can continue
+        shutterButton.setOnLongClickListener(v -> {
+            shutterButton.setEnabled(false);
+            captureBurst();
+            return true;
+        });
+        CaptureProcessor.get(this).setListener(this::showBurstProgress);
+
         connectivityManager = (ConnectivityManager) getSystemService(CONNECTIVITY_SERVICE);
 
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
@@ -263,35 +278,27 @@ public class CameraActivity extends AppCompatActivity {
         }
 
         shutterButton.setEnabled(false);
+
+        //still connected from the previous capture, no need to ask for the network again
+        Network existing = EspLink.getNetwork();
+        if (existing != null) {
+            connectionDone = true;
+            EspLink.setListener(null);
+            onEspAvailable(existing);
+            return;
+        }
+
         showConnectingOverlay();
 
         connectionDone = false;
 
-        networkCallback = new ConnectivityManager.NetworkCallback() {
+        EspLink.connect(connectivityManager, request, new EspLink.Listener() {
             @Override
             public void onAvailable(Network network) {
                 if (connectionDone) return;
                 connectionDone = true;
                 cancelConnectTimeout();
-
-                espNetwork = network;
-                connectivityManager.bindProcessToNetwork(network);
-
-                runOnUiThread(() -> {
-                    String html =
-                            "<html><head><style>" +
-                                    "body,html{margin:0;padding:0;background:black;overflow:hidden;}" +
-                                    "img{width:100vw;height:100vh;object-fit:cover;}" +
-                                    "</style></head><body>" +
-                                    "<img src='" + ESP_BASE + ":81/stream' />" +
-                                    "</body></html>";
-
-                    webView.loadDataWithBaseURL(null, html, "text/html", "UTF-8", null);
-                    Toast.makeText(CameraActivity.this, "Connected to ESP Wi-Fi", Toast.LENGTH_SHORT).show();
-
-                    shutterButton.setEnabled(true);
-                    fadeOutConnectingOverlay();
-                });
+                onEspAvailable(network);
             }
 
             //called if we couldn't join the ESP network
@@ -308,19 +315,13 @@ public class CameraActivity extends AppCompatActivity {
                     shutterButton.setEnabled(false);
                 });
             }
-        };
-
-        connectivityManager.requestNetwork(request, networkCallback);
+        });
 
         connectTimeoutRunnable = () -> {
             if (connectionDone) return;
             connectionDone = true;
 
-            try {
-                if (connectivityManager != null && networkCallback != null) {
-                    connectivityManager.unregisterNetworkCallback(networkCallback);
-                }
-            } catch (Exception ignored) {}
+            EspLink.release();
 
             fadeOutConnectingOverlay();
             Toast.makeText(CameraActivity.this,
@@ -337,60 +338,140 @@ public class CameraActivity extends AppCompatActivity {
         timeoutHandler.postDelayed(connectTimeoutRunnable, CONNECT_TIMEOUT_MS);
     }
 
+    //joined the ESP network, start the preview
+    private void onEspAvailable(Network network) {
+        espNetwork = network;
+        espClient = EspCameraClient.forNetwork(network);
+
+        runOnUiThread(() -> {
+            startPreview();
+            Toast.makeText(CameraActivity.this, "Connected to ESP Wi-Fi", Toast.LENGTH_SHORT).show();
+
+            shutterButton.setEnabled(true);
+            fadeOutConnectingOverlay();
+        });
+    }
+
+    //open the ESP stream, its socket goes over the ESP network
+    private void startPreview() {
+        if (preview == null || espClient == null) return;
+        frameSelector.clear();
+        preview.start(espClient.streamClient(), EspCameraClient.STREAM_URL);
+    }
+
     //unbind from ESP when done with it
     private void releaseEspNetwork() {
-        try {
-            if (connectivityManager != null) {
-                connectivityManager.bindProcessToNetwork(null);
-                if (networkCallback != null) {
-                    connectivityManager.unregisterNetworkCallback(networkCallback);
-                }
-            }
-        } catch (Exception ignored) {
-        }
+        if (preview != null) preview.stop();
+        EspLink.release();
         espNetwork = null;
+        espClient = null;
     }
 
     //capture from ESP and upload
     private void captureFromEsp() {
+        EspCameraClient client = espClient;
         io.execute(() -> {
             try {
-                URL url = new URL(ESP_BASE + "/capture");
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(10000);
-
-                int code = conn.getResponseCode();
-                if (code != 200) {
-                    throw new RuntimeException("HTTP " + code);
+                //zero latency capture from the preview, only ask the camera for a new frame if there is none
+                byte[] jpeg = frameSelector.sharpest(MAX_FRAME_AGE_MS);
+                if (jpeg != null) {
+                    PerfMetrics.increment("capture_from_stream");
+                } else {
+                    PerfMetrics.increment("capture_from_endpoint");
+                    if (client == null) throw new IOException("Camera not connected");
+                    jpeg = client.capture();
                 }
 
-                InputStream in = conn.getInputStream();
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                byte[] buf = new byte[4096];
-                int len;
-                while ((len = in.read(buf)) != -1) {
-                    baos.write(buf, 0, len);
-                }
-                in.close();
-                conn.disconnect();
+                //continue as soon as there is validated internet instead of a fixed sleep
+                long waitStart = SystemClock.elapsedRealtime();
+                Network internet = NetworkReadiness.awaitValidatedInternet(connectivityManager, INTERNET_CHECK_MS);
+                PerfMetrics.record(this, "network_ready_wait_ms", SystemClock.elapsedRealtime() - waitStart);
 
-                byte[] jpeg = baos.toByteArray();
+                if (internet == null) {
+                    saveToOutbox(jpeg);
+                } else {
+                    uploadToFirebase(jpeg);
+                }
 
-                //disconnect from ESP so phone can use its normal internet again
-                runOnUiThread(this::releaseEspNetwork);
+            } catch (Exception e) {
+                runOnUiThread(() -> goHomeOnCaptureError("Please restart your camera"));
+            }
+        });
+    }
 
-                Thread.sleep(2000);
+    //pull frames back to back, drop near duplicates and queue the rest for background processing
+    private void captureBurst() {
+        CaptureProcessor processor = CaptureProcessor.get(this);
+        EspCameraClient client = espClient;
+        if (client == null) {
+            shutterButton.setEnabled(true);
+            return;
+        }
+        io.execute(() -> {
+            List<Long> kept = new ArrayList<>();
+            int queued = 0, duplicates = 0, refused = 0;
+            String error = null;
+
+            for (int i = 0; i < BURST_FRAMES; i++) {
+                byte[] jpeg;
+                try {
+                    jpeg = client.capture();
+                } catch (IOException e) {
+                    error = "Camera stopped responding";
+                    break;
+                }
 
-                uploadToFirebase(jpeg);
+                Long hash = ImageHash.ofJpeg(jpeg);
+                if (hash != null && isNearDuplicate(hash, kept)) {
+                    duplicates++;
+                    continue;
+                }
 
-            } catch (Exception e) {
-                runOnUiThread(() -> goHomeOnCaptureError("Please restart your camera"));
+                if (!processor.enqueue(jpeg, userRole)) {
+                    refused++;
+                    continue;
+                }
+                if (hash != null) kept.add(hash);
+                queued++;
             }
+
+            PerfMetrics.record(this, "burst_duplicates_skipped", duplicates);
+
+            String message = "Burst: " + queued + " queued";
+            if (duplicates > 0) message += ", " + duplicates + " duplicates skipped";
+            if (refused > 0) message += ", " + refused + " dropped (queue full)";
+            if (error != null) message = error + ". " + message;
+            String toast = message;
+
+            runOnUiThread(() -> {
+                Toast.makeText(CameraActivity.this, toast, Toast.LENGTH_SHORT).show();
+                shutterButton.setEnabled(true);
+            });
         });
     }
 
+    //true if the frame is close to one already queued in this burst
+    private static boolean isNearDuplicate(long hash, List<Long> kept) {
+        for (long other : kept) {
+            if (ImageHash.isDuplicate(hash, other)) return true;
+        }
+        return false;
+    }
+
+    //show how many burst frames are still being processed
+    private void showBurstProgress(int pending, int saved, int deferred, int failed) {
+        if (burstStatusText == null) return;
+        if (pending == 0 && saved == 0 && deferred == 0 && failed == 0) {
+            burstStatusText.setVisibility(View.GONE);
+            return;
+        }
+        String text = pending > 0 ? "Processing " + pending : "Saved " + saved;
+        if (deferred > 0) text += " (" + deferred + " saved for later)";
+        if (failed > 0) text += " (" + failed + " failed)";
+        burstStatusText.setText(text);
+        burstStatusText.setVisibility(View.VISIBLE);
+    }
+
     //uploads the picture to firebase to the specific account
     private void uploadToFirebase(byte[] jpeg) {
         String uid;
@@ -405,31 +486,42 @@ public class CameraActivity extends AppCompatActivity {
             return;
         }
 
-        String fileName = System.currentTimeMillis() + ".jpg";
-        StorageReference ref = FirebaseStorage.getInstance()
-                .getReference("captures")
-                .child(uid)
-                .child(fileName);
+        CaptureRepository.Upload upload = CaptureRepository.uploadCapture(uid, jpeg, System.currentTimeMillis());
 
-        ref.putBytes(jpeg)
-                .continueWithTask(task -> {
-                    if (!task.isSuccessful()) throw task.getException();
-                    return ref.getDownloadUrl();
-                })
-                .addOnSuccessListener(uri -> {
-                    // Only go to DescriptionActivity
-                    Intent intent =
-                            new Intent(CameraActivity.this, DescriptionActivity.class);
-                    intent.putExtra("userRole", userRole);
-                    intent.putExtra("imageUrl", uri.toString());
-                    startActivity(intent);
-                    finish();
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(CameraActivity.this,
-                            "Upload failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    shutterButton.setEnabled(true);
-                });
+        //hand the bytes over directly so identification runs while the upload is in flight
+        String captureId = CaptureStore.put(jpeg, upload);
+
+        runOnUiThread(() -> {
+            Intent intent =
+                    new Intent(CameraActivity.this, DescriptionActivity.class);
+            intent.putExtra("userRole", userRole);
+            intent.putExtra("captureId", captureId);
+            startActivity(intent);
+            finish();
+        });
+    }
+
+    //no internet, keep the capture on the phone and identify it once back online
+    private void saveToOutbox(byte[] jpeg) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            runOnUiThread(() -> goHomeOnCaptureError("Not logged in"));
+            return;
+        }
+        try {
+            CaptureOutbox.get(this).add(jpeg, user.getUid(), userRole, System.currentTimeMillis());
+        } catch (IOException e) {
+            runOnUiThread(() -> goHomeOnCaptureError("No internet and the capture could not be saved"));
+            return;
+        }
+
+        //still on the camera, keep shooting
+        runOnUiThread(() -> {
+            Toast.makeText(CameraActivity.this,
+                    "No internet, the capture will be identified once you're back online",
+                    Toast.LENGTH_LONG).show();
+            shutterButton.setEnabled(true);
+        });
     }
 
     //handles capture error, sends back to home page
@@ -452,22 +544,25 @@ public class CameraActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
-        if (webView != null) webView.onPause();
+        if (preview != null) preview.stop();
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        if (webView != null) webView.onResume();
+        startPreview();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
         cancelConnectTimeout();
-        releaseEspNetwork();
+        CaptureProcessor.get(this).setListener(null);
+        //the ESP link outlives this screen so the next capture can reuse it
+        EspLink.setListener(null);
         io.shutdown();
-        if (webView != null) webView.destroy();
+        if (preview != null) preview.stop();
+        frameSelector.shutdown();
         stopLogoPulse();
     }
 
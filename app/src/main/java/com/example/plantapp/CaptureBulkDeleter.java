@@ -0,0 +1,150 @@
+package com.example.plantapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+//clears a user's whole capture history round by round: a page of documents in batches, then the images they referenced
+//an image is only deleted once its document is gone, so a failed clear never leaves a capture without its image,
+//and a capture saved while the clear runs keeps its files
+final class CaptureBulkDeleter {
+
+    private static final String TAG = "CaptureBulkDeleter";
+
+    //write batches per round, committed one after another by CaptureRepository.deleteCaptures
+    private static final int BATCHES_PER_ROUND = 4;
+    private static final int CAPTURES_PER_ROUND = BATCHES_PER_ROUND * CaptureRepository.DELETES_PER_BATCH;
+
+    //storage deletes running at the same time
+    private static final int MAX_STORAGE_DELETES_IN_FLIGHT = 32;
+
+    private static final long TIMEOUT_MS = 60_000L;
+
+    //called on the main thread
+    interface Listener {
+        void onProgress(int deleted, int total);
+        void onComplete(int deleted);
+        void onFailure(Exception e, int deleted);
+    }
+
+    private final String uid;
+    private final CollectionReference collection;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+
+    //collection lists the captures to delete, captureSummaries or captures for an account without summaries
+    CaptureBulkDeleter(String uid, CollectionReference collection, Listener listener) {
+        this.uid = uid;
+        this.collection = collection;
+        this.listener = listener;
+    }
+
+    void start() {
+        worker.execute(this::run);
+        worker.shutdown();
+    }
+
+    //runs on the worker thread
+    private void run() {
+        int deleted = 0;
+        try {
+            int total = (int) await(collection.count().get(AggregateSource.SERVER)).getCount();
+            postProgress(0, total);
+
+            while (true) {
+                //deleted captures drop out of the query, so the first page is always the next one
+                QuerySnapshot page = await(collection.limit(CAPTURES_PER_ROUND).get());
+                List<DocumentSnapshot> docs = page.getDocuments();
+                if (docs.isEmpty()) break;
+
+                List<String> docIds = new ArrayList<>(docs.size());
+                List<String> fileUrls = new ArrayList<>(docs.size() * 2);
+                for (DocumentSnapshot doc : docs) {
+                    docIds.add(doc.getId());
+                    addUrl(fileUrls, doc.getString("url"));
+                    addUrl(fileUrls, doc.getString("thumbUrl"));
+                }
+
+                //up to BATCHES_PER_ROUND batches, then the files only these captures used
+                await(CaptureRepository.deleteCaptures(uid, docIds));
+                deleteFiles(fileUrls);
+                deleted += docIds.size();
+                postProgress(deleted, Math.max(total, deleted));
+            }
+
+            //the rounds dropped the count by what they listed, a capture that was already gone made it too low
+            await(CaptureRepository.recountCaptures(uid));
+
+            int done = deleted;
+            mainHandler.post(() -> listener.onComplete(done));
+        } catch (Exception e) {
+            Log.w(TAG, "clear history failed after " + deleted, e);
+            int done = deleted;
+            mainHandler.post(() -> listener.onFailure(e, done));
+        }
+    }
+
+    //only storage download urls, anything else has no file of ours to delete
+    private static void addUrl(List<String> urls, String url) {
+        if (url != null && (url.startsWith("gs://") || url.startsWith("https://"))) urls.add(url);
+    }
+
+    //delete the files behind the download urls, MAX_STORAGE_DELETES_IN_FLIGHT at a time
+    private void deleteFiles(List<String> urls) throws Exception {
+        FirebaseStorage storage = FirebaseStorage.getInstance();
+        for (int start = 0; start < urls.size(); start += MAX_STORAGE_DELETES_IN_FLIGHT) {
+            List<Task<Void>> deletes = new ArrayList<>();
+            for (String url : urls.subList(start, Math.min(start + MAX_STORAGE_DELETES_IN_FLIGHT, urls.size()))) {
+                StorageReference file;
+                try {
+                    file = storage.getReferenceFromUrl(url);
+                } catch (IllegalArgumentException e) {
+                    //not one of our buckets
+                    continue;
+                }
+                deletes.add(file.delete());
+            }
+            await(Tasks.whenAllComplete(deletes));
+            for (Task<Void> delete : deletes) {
+                if (!delete.isSuccessful() && !isNotFound(delete.getException())) throw delete.getException();
+            }
+        }
+    }
+
+    //already gone is fine
+    private static boolean isNotFound(Exception e) {
+        return e instanceof StorageException
+                && ((StorageException) e).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND;
+    }
+
+    private static <T> T await(Task<T> task) throws Exception {
+        try {
+            return Tasks.await(task, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private void postProgress(int deleted, int total) {
+        mainHandler.post(() -> listener.onProgress(deleted, total));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.plantapp;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+//capture times as shown in the history lists, not thread safe, one per list
+final class CaptureDates {
+
+    private static final String PATTERN = "yyyy/MM/dd HH:mm";
+
+    private final SimpleDateFormat format;
+    //reused for every row instead of a new Date per bind
+    private final Date date = new Date();
+
+    CaptureDates(Locale locale) {
+        format = new SimpleDateFormat(PATTERN, locale);
+    }
+
+    CaptureDates(Locale locale, TimeZone timeZone) {
+        this(locale);
+        format.setTimeZone(timeZone);
+    }
+
+    //the capture time, or the date text older captures stored instead, empty if there is neither
+    String format(long timestamp, String dateTime) {
+        if (timestamp > 0L) {
+            date.setTime(timestamp);
+            return format.format(date);
+        }
+        return dateTime != null ? dateTime : "";
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.plantapp;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Locale;
+
+//rows for a capture history list, used on the profile and friend profile screens
+class CaptureHistoryAdapter extends ListAdapter<CaptureHistoryItem, CaptureHistoryAdapter.RowHolder> {
+
+    interface OnItemClickListener {
+        void onItemClick(CaptureHistoryItem item);
+    }
+
+    private static final DiffUtil.ItemCallback<CaptureHistoryItem> DIFF = new DiffUtil.ItemCallback<CaptureHistoryItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull CaptureHistoryItem a, @NonNull CaptureHistoryItem b) {
+            return a.docId.equals(b.docId);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull CaptureHistoryItem a, @NonNull CaptureHistoryItem b) {
+            return a.equals(b);
+        }
+    };
+
+    private final ThumbnailCache thumbnails;
+    private final int thumbSizePx;
+    private final OnItemClickListener listener;
+    private final CaptureDates dates = new CaptureDates(Locale.getDefault());
+
+    CaptureHistoryAdapter(ThumbnailCache thumbnails, int thumbSizePx, OnItemClickListener listener) {
+        super(DIFF);
+        this.thumbnails = thumbnails;
+        this.thumbSizePx = thumbSizePx;
+        this.listener = listener;
+    }
+
+    @NonNull
+    @Override
+    public RowHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View row = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_history_capture, parent, false);
+        return new RowHolder(row);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RowHolder holder, int position) {
+        CaptureHistoryItem item = getItem(position);
+
+        String name = (item.commonName != null && !item.commonName.isEmpty())
+                ? item.commonName : "Unknown Plant";
+        String role = (item.role != null && !item.role.isEmpty())
+                ? item.role : "Unknown Role";
+
+        holder.title.setText(name + " · " + role);
+        holder.date.setText(dates.format(item.timestamp, item.dateTime));
+        holder.itemView.setOnClickListener(v -> listener.onItemClick(item));
+
+        //same image as before, keep what is on screen
+        String url = item.tileUrl();
+        if (url.equals(holder.boundUrl)) return;
+
+        holder.cancelLoad();
+        holder.thumb.setImageDrawable(null);
+        holder.boundUrl = url;
+        holder.request = thumbnails.load(url, thumbSizePx, holder.thumb::setImageBitmap);
+    }
+
+    //the row scrolled away, stop its thumbnail download
+    @Override
+    public void onViewRecycled(@NonNull RowHolder holder) {
+        holder.cancelLoad();
+        holder.thumb.setImageDrawable(null);
+        holder.boundUrl = null;
+    }
+
+    //same 1dp line the list views used to draw between rows
+    static DividerItemDecoration divider(Context context) {
+        DividerItemDecoration divider = new DividerItemDecoration(context, DividerItemDecoration.VERTICAL);
+        Drawable line = ContextCompat.getDrawable(context, R.drawable.history_divider);
+        if (line != null) divider.setDrawable(line);
+        return divider;
+    }
+
+    static final class RowHolder extends RecyclerView.ViewHolder {
+        final TextView title;
+        final TextView date;
+        final ImageView thumb;
+        ThumbnailCache.Request request;
+        String boundUrl;
+
+        RowHolder(View itemView) {
+            super(itemView);
+            title = itemView.findViewById(R.id.historyTitle);
+            date = itemView.findViewById(R.id.historyDate);
+            thumb = itemView.findViewById(R.id.historyThumb);
+        }
+
+        void cancelLoad() {
+            if (request != null) {
+                request.cancel();
+                request = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.plantapp;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.Objects;
+
+//a capture in a history list, shared by the profile and friend profile screens
+final class CaptureHistoryItem {
+    final String docId;
+    final String imageUrl;
+    final String thumbUrl;
+    final String role;
+    final String commonName;
+    final String dateTime;
+    final String scientificName;
+    final String description;
+    final int confidence;
+    final long timestamp;
+
+    CaptureHistoryItem(String docId,
+                       String imageUrl,
+                       String thumbUrl,
+                       String role,
+                       String commonName,
+                       String dateTime,
+                       String scientificName,
+                       String description,
+                       int confidence,
+                       long timestamp) {
+        this.docId = docId;
+        this.imageUrl = imageUrl;
+        this.thumbUrl = thumbUrl;
+        this.role = role;
+        this.commonName = commonName;
+        this.dateTime = dateTime;
+        this.scientificName = scientificName;
+        this.description = description;
+        this.confidence = confidence;
+        this.timestamp = timestamp;
+    }
+
+    //read a capture or capture summary document, null if it has no image
+    //summaries have no description, the detail screen loads it
+    static CaptureHistoryItem fromDoc(DocumentSnapshot doc) {
+        String imageUrl = doc.getString("url");
+        if (imageUrl == null) return null;
+
+        String role = doc.getString("role");
+        Long confLong = doc.getLong("confidence");
+        Long tsLong = doc.getLong("timestamp");
+
+        return new CaptureHistoryItem(
+                doc.getId(),
+                imageUrl,
+                doc.getString("thumbUrl"),
+                role != null ? role : "Hiker",
+                doc.getString("commonName"),
+                doc.getString("dateTime"),
+                doc.getString("scientificName"),
+                doc.getString("description"),
+                confLong != null ? confLong.intValue() : 0,
+                tsLong != null ? tsLong : 0L
+        );
+    }
+
+    //older captures have no thumbnail, those fall back to the full image
+    String tileUrl() {
+        return (thumbUrl != null && !thumbUrl.isEmpty()) ? thumbUrl : imageUrl;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CaptureHistoryItem)) return false;
+        CaptureHistoryItem other = (CaptureHistoryItem) o;
+        return confidence == other.confidence
+                && timestamp == other.timestamp
+                && Objects.equals(docId, other.docId)
+                && Objects.equals(imageUrl, other.imageUrl)
+                && Objects.equals(thumbUrl, other.thumbUrl)
+                && Objects.equals(role, other.role)
+                && Objects.equals(commonName, other.commonName)
+                && Objects.equals(dateTime, other.dateTime)
+                && Objects.equals(scientificName, other.scientificName)
+                && Objects.equals(description, other.description);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(docId, imageUrl, thumbUrl, timestamp);
+    }
+}
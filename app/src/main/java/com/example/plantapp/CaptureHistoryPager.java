@@ -0,0 +1,121 @@
+package com.example.plantapp;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//cursor based paging over a capture history query, the next page is requested
+//before the user reaches the bottom of the list
+final class CaptureHistoryPager {
+
+    static final int PAGE_SIZE = 20;
+    //rows left below the last visible one when the next page is requested
+    private static final int PREFETCH_DISTANCE = 5;
+
+    //called on the main thread
+    interface Listener {
+        void onItems(List<CaptureHistoryItem> items, boolean endReached);
+        void onError(Exception e);
+    }
+
+    private final Listener listener;
+    private Query query;
+
+    private final List<CaptureHistoryItem> items = new ArrayList<>();
+    private DocumentSnapshot lastDoc;
+    private boolean loading = false;
+    private boolean endReached = false;
+    //bumped by refresh so pages of an older load are dropped
+    private int generation = 0;
+    private RecyclerView recyclerView;
+
+    CaptureHistoryPager(Listener listener) {
+        this.listener = listener;
+    }
+
+    //request the next page whenever the list scrolls close to its end
+    void attachTo(RecyclerView rv) {
+        recyclerView = rv;
+        rv.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+                maybeLoadNext();
+            }
+        });
+    }
+
+    //start over from the first page of query, which must already be ordered, e.g. by timestamp descending
+    void refresh(Query query) {
+        this.query = query;
+        generation++;
+        items.clear();
+        lastDoc = null;
+        loading = false;
+        endReached = false;
+        loadNext();
+    }
+
+    void loadNext() {
+        if (query == null || loading || endReached) return;
+        loading = true;
+        int gen = generation;
+
+        Query page = lastDoc != null ? query.startAfter(lastDoc) : query;
+        page.limit(PAGE_SIZE)
+                .get()
+                .addOnSuccessListener(qs -> {
+                    if (gen != generation) return;
+                    loading = false;
+
+                    List<DocumentSnapshot> docs = qs.getDocuments();
+                    if (docs.size() < PAGE_SIZE) endReached = true;
+                    if (!docs.isEmpty()) lastDoc = docs.get(docs.size() - 1);
+
+                    for (DocumentSnapshot doc : docs) {
+                        CaptureHistoryItem item = CaptureHistoryItem.fromDoc(doc);
+                        if (item != null) items.add(item);
+                    }
+                    listener.onItems(new ArrayList<>(items), endReached);
+
+                    //a short first page may not fill the screen, so no scroll would ever ask for more
+                    if (recyclerView != null) recyclerView.post(this::maybeLoadNext);
+                })
+                .addOnFailureListener(e -> {
+                    if (gen != generation) return;
+                    loading = false;
+                    listener.onError(e);
+                });
+    }
+
+    //drop a capture deleted elsewhere without reloading, so the list keeps its pages and scroll position
+    void remove(String docId) {
+        boolean removed = false;
+        for (int i = items.size() - 1; i >= 0; i--) {
+            if (items.get(i).docId.equals(docId)) {
+                items.remove(i);
+                removed = true;
+            }
+        }
+        if (removed) listener.onItems(new ArrayList<>(items), endReached);
+    }
+
+    //the items loaded so far
+    List<CaptureHistoryItem> items() {
+        return new ArrayList<>(items);
+    }
+
+    private void maybeLoadNext() {
+        if (recyclerView == null || loading || endReached) return;
+        RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
+        if (!(lm instanceof LinearLayoutManager)) return;
+
+        int lastVisible = ((LinearLayoutManager) lm).findLastVisibleItemPosition();
+        if (lastVisible >= lm.getItemCount() - PREFETCH_DISTANCE) loadNext();
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.plantapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//captures taken without internet, kept in app storage until CaptureSyncWorker uploads and identifies them
+//each capture is a jpeg file, the journal lists which ones are still pending and whose they are:
+//  ADD <id> <captured at ms> <uid> <role>
+//  DONE <id>
+final class CaptureOutbox {
+
+    private static final String TAG = "CaptureOutbox";
+
+    private static final String DIR_NAME = "outbox";
+    private static final String JOURNAL_NAME = "journal";
+    private static final String ADD = "ADD";
+    private static final String DONE = "DONE";
+
+    //the journal is rewritten with only the pending captures once it has this many extra lines
+    private static final int COMPACT_AFTER_LINES = 64;
+
+    //one pending capture
+    static final class Entry {
+        final String id;
+        final long capturedAt;
+        //the account the capture was taken with, only that account syncs it
+        final String uid;
+        final String role;
+        final File jpeg;
+
+        Entry(String id, long capturedAt, String uid, String role, File jpeg) {
+            this.id = id;
+            this.capturedAt = capturedAt;
+            this.uid = uid;
+            this.role = role;
+            this.jpeg = jpeg;
+        }
+    }
+
+    private static CaptureOutbox instance;
+
+    private final Context appContext;
+    private final File dir;
+    private final File journal;
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    //opening the outbox reads the journal, so it happens here too
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private int redundantLines = 0;
+
+    private CaptureOutbox(Context context) {
+        appContext = context.getApplicationContext();
+        dir = new File(appContext.getFilesDir(), DIR_NAME);
+        journal = new File(dir, JOURNAL_NAME);
+        dir.mkdirs();
+        readJournal();
+        deleteOrphans();
+    }
+
+    static synchronized CaptureOutbox get(Context context) {
+        if (instance == null) instance = new CaptureOutbox(context);
+        return instance;
+    }
+
+    //keep a capture for later and schedule the sync, does disk io so not for the main thread
+    synchronized Entry add(byte[] jpeg, String uid, String role, long capturedAt) throws IOException {
+        String id = UUID.randomUUID().toString();
+        File file = new File(dir, id + ".jpg");
+        File tmp = new File(dir, id + ".tmp");
+
+        //the jpeg is complete on disk before the journal mentions it
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(jpeg);
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Failed to store capture");
+        }
+
+        String safeRole = (role == null || role.trim().isEmpty()) ? "Hiker" : role.replaceAll("\\s+", " ").trim();
+        Entry entry = new Entry(id, capturedAt, uid, safeRole, file);
+        try {
+            append(addLine(entry));
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+        pending.put(id, entry);
+
+        CaptureSyncWorker.schedule(appContext);
+        return entry;
+    }
+
+    //open the outbox and add on its own thread, for callers on the main thread
+    static Task<Entry> addAsync(Context context, byte[] jpeg, String uid, String role, long capturedAt) {
+        Context appContext = context.getApplicationContext();
+        return Tasks.call(writer, () -> get(appContext).add(jpeg, uid, role, capturedAt));
+    }
+
+    //the user's captures oldest first, at most max of them, other accounts' captures stay pending
+    synchronized List<Entry> pending(String uid, int max) {
+        List<Entry> out = new ArrayList<>(Math.min(max, pending.size()));
+        for (Entry entry : pending.values()) {
+            if (out.size() >= max) break;
+            if (entry.uid.equals(uid)) out.add(entry);
+        }
+        return out;
+    }
+
+    synchronized int size(String uid) {
+        int count = 0;
+        for (Entry entry : pending.values()) {
+            if (entry.uid.equals(uid)) count++;
+        }
+        return count;
+    }
+
+    //the capture is saved to the history, or can't ever be
+    synchronized void remove(String id) {
+        Entry entry = pending.remove(id);
+        if (entry == null) return;
+        entry.jpeg.delete();
+        try {
+            append(DONE + " " + id);
+            redundantLines += 2;
+            if (redundantLines >= COMPACT_AFTER_LINES) compact();
+        } catch (IOException e) {
+            //the jpeg is gone, the entry is dropped when the journal is read again
+            Log.w(TAG, "failed to journal " + id, e);
+        }
+    }
+
+    static byte[] read(Entry entry) throws IOException {
+        try (FileInputStream in = new FileInputStream(entry.jpeg)) {
+            byte[] bytes = new byte[(int) entry.jpeg.length()];
+            int off = 0;
+            while (off < bytes.length) {
+                int n = in.read(bytes, off, bytes.length - off);
+                if (n < 0) throw new IOException("Truncated capture " + entry.id);
+                off += n;
+            }
+            return bytes;
+        }
+    }
+
+    private void append(String line) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+    }
+
+    //replay the journal, a line cut off by a crash is ignored
+    private void readJournal() {
+        if (!journal.exists()) return;
+        int lines = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(journal), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                String[] parts = line.split(" ", 5);
+                if (parts.length == 5 && ADD.equals(parts[0])) {
+                    try {
+                        File file = new File(dir, parts[1] + ".jpg");
+                        pending.put(parts[1],
+                                new Entry(parts[1], Long.parseLong(parts[2]), parts[3], parts[4], file));
+                    } catch (NumberFormatException ignored) {
+                    }
+                } else if (parts.length == 2 && DONE.equals(parts[0])) {
+                    pending.remove(parts[1]);
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "failed to read journal", e);
+        }
+
+        //a capture whose jpeg is missing can't be synced
+        pending.values().removeIf(entry -> !entry.jpeg.exists());
+        redundantLines = lines - pending.size();
+        if (redundantLines >= COMPACT_AFTER_LINES) {
+            try {
+                compact();
+            } catch (IOException e) {
+                Log.w(TAG, "failed to compact journal", e);
+            }
+        }
+    }
+
+    //jpegs and temp files the journal doesn't list, e.g. from a crash between the two writes
+    private void deleteOrphans() {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.equals(journal)) continue;
+            String name = file.getName();
+            int dot = name.lastIndexOf('.');
+            String id = dot > 0 ? name.substring(0, dot) : name;
+            if (!name.endsWith(".jpg") || !pending.containsKey(id)) file.delete();
+        }
+    }
+
+    private static String addLine(Entry entry) {
+        return ADD + " " + entry.id + " " + entry.capturedAt + " " + entry.uid + " " + entry.role;
+    }
+
+    //rewrite the journal with only the pending captures, swapped in with a rename
+    private void compact() throws IOException {
+        File tmp = new File(dir, JOURNAL_NAME + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp);
+             Writer lines = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            for (Entry entry : pending.values()) {
+                lines.write(addLine(entry) + "\n");
+            }
+            lines.flush();
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(journal)) {
+            tmp.delete();
+            throw new IOException("Failed to replace journal");
+        }
+        redundantLines = 0;
+    }
+}
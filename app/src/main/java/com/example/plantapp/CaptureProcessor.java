@@ -0,0 +1,208 @@
+package com.example.plantapp;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+//headless capture pipeline for burst mode: identify, upload and save each frame without a screen
+//process-wide so frames keep going after the camera screen is closed, a frame that fails goes to the outbox
+final class CaptureProcessor {
+
+    private static final String TAG = "CaptureProcessor";
+
+    //frames waiting to be processed, more than this is refused instead of piling up in memory
+    static final int QUEUE_CAPACITY = 10;
+
+    private static final long IDENTIFY_TIMEOUT_MS = 90_000L;
+    private static final long UPLOAD_TIMEOUT_MS = 60_000L;
+
+    //progress for the camera screen, called on the main thread
+    //deferred frames failed here and wait in the outbox, failed ones are lost
+    interface Listener {
+        void onProgress(int pending, int saved, int deferred, int failed);
+    }
+
+    private static CaptureProcessor instance;
+
+    private final Context appContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private PlantIdentifier identifier;
+
+    //one frame at a time keeps memory and network use flat, the queue absorbs the burst
+    private final ThreadPoolExecutor worker = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY));
+
+    private volatile Listener listener;
+    private int pending = 0;
+    private int saved = 0;
+    private int deferred = 0;
+    private int failed = 0;
+
+    private CaptureProcessor(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    static synchronized CaptureProcessor get(Context context) {
+        if (instance == null) instance = new CaptureProcessor(context);
+        return instance;
+    }
+
+    //the screen that shows progress, null to stop receiving it
+    void setListener(Listener l) {
+        listener = l;
+        if (l != null) notifyProgress();
+    }
+
+    //queue one frame, returns false if the queue is full
+    boolean enqueue(byte[] jpeg, String role) {
+        long capturedAt = System.currentTimeMillis();
+        synchronized (this) { pending++; }
+        try {
+            worker.execute(() -> process(jpeg, role, capturedAt));
+        } catch (RejectedExecutionException e) {
+            synchronized (this) { pending--; }
+            return false;
+        }
+        notifyProgress();
+        return true;
+    }
+
+    //one queued frame, runs on the worker thread
+    private void process(byte[] jpeg, String role, long capturedAt) {
+        boolean ok = false;
+        boolean kept = false;
+        long start = SystemClock.elapsedRealtime();
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        try {
+            if (user == null) throw new IllegalStateException("Not logged in");
+            identifyUploadAndSave(appContext, identifier(), user.getUid(), jpeg, role, capturedAt);
+            ok = true;
+        } catch (Exception e) {
+            Log.w(TAG, "burst frame failed", e);
+            //keep the frame for the outbox sync instead of losing it
+            if (user != null) {
+                try {
+                    CaptureOutbox.get(appContext).add(jpeg, user.getUid(), role, capturedAt);
+                    kept = true;
+                } catch (IOException outboxError) {
+                    Log.w(TAG, "failed to keep burst frame", outboxError);
+                }
+            }
+        }
+
+        PerfMetrics.record(appContext, "burst_frame_ms", SystemClock.elapsedRealtime() - start);
+        synchronized (this) {
+            pending--;
+            if (ok) saved++;
+            else if (kept) deferred++;
+            else failed++;
+        }
+        notifyProgress();
+    }
+
+    //identify one frame, then upload it and save it to the history
+    //nothing is uploaded for a frame the model gave no answer for, and the uploads are deleted again if the
+    //save fails, so a retry never leaves files behind
+    //blocks the calling thread, also used by the outbox sync
+    static void identifyUploadAndSave(Context context, PlantIdentifier identifier, String uid, byte[] jpeg,
+                                      String role, long capturedAt) throws Exception {
+        InferenceImage image = InferenceImage.prepare(jpeg);
+        if (image == null) throw new IllegalStateException("Failed to decode image");
+        PlantIdentification result;
+        try {
+            result = identify(context, identifier, image, role);
+        } finally {
+            BitmapDecoder.release(image.bitmap);
+        }
+
+        CaptureRepository.Upload upload = CaptureRepository.uploadCapture(uid, jpeg, capturedAt);
+        try {
+            save(uid, role, result, upload);
+        } catch (Exception e) {
+            upload.discard();
+            throw e;
+        }
+    }
+
+    //the cached identification or a new one, throws if the model gave no description
+    //model calls that fail come back empty and the name alone falls back to "Unknown plant", so that is the signal
+    private static PlantIdentification identify(Context context, PlantIdentifier identifier, InferenceImage image,
+                                                String role) throws Exception {
+        IdentificationCache cache = IdentificationCache.get(context);
+        long hash = ImageHash.ofBitmap(image.bitmap);
+        IdentificationCache.Hit hit = cache.lookup(hash, role);
+        if (hit == null) {
+            TaskCompletionSource<PlantIdentification> identified = new TaskCompletionSource<>();
+            identifier.identify(image, role, identified::trySetResult);
+            PlantIdentification result = Tasks.await(identified.getTask(), IDENTIFY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (result.description.isEmpty()) throw new IOException("Identification failed");
+            cache.put(hash, role, result);
+            return result;
+        }
+        if (hit.result() == null) {
+            //plant already known, only this role's description is missing
+            TaskCompletionSource<String> described = new TaskCompletionSource<>();
+            identifier.describe(image, role, described::trySetResult);
+            String description = Tasks.await(described.getTask(), IDENTIFY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (description.isEmpty()) throw new IOException("Identification failed");
+            cache.putDescription(hash, role, description);
+            return hit.identification.withDescription(description);
+        }
+        return hit.result();
+    }
+
+    private static void save(String uid, String role, PlantIdentification result,
+                             CaptureRepository.Upload upload) throws Exception {
+        Uri url = Tasks.await(upload.image, UPLOAD_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        String thumbUrl = null;
+        try {
+            thumbUrl = Tasks.await(upload.thumbnail, UPLOAD_TIMEOUT_MS, TimeUnit.MILLISECONDS).toString();
+        } catch (Exception e) {
+            //lists fall back to the full image
+        }
+
+        String commonName = IdentificationParser.stripInstructionEcho(result.commonName);
+        String scientificName = IdentificationParser.stripInstructionEcho(result.scientificName);
+        if (IdentificationParser.startsWithLeak(commonName)) commonName = "Unknown plant";
+        if (IdentificationParser.startsWithLeak(scientificName)) scientificName = "";
+
+        Map<String, Object> data = CaptureRepository.buildCapture(url.toString(), thumbUrl, role, commonName,
+                scientificName, IdentificationParser.formatDescription(result), result.confidence, upload.capturedAt);
+        CaptureRepository.addIdentification(data, role, result);
+        Tasks.await(CaptureRepository.saveCapture(uid, data));
+    }
+
+    private synchronized PlantIdentifier identifier() {
+        if (identifier == null) identifier = new PlantIdentifier();
+        return identifier;
+    }
+
+    private void notifyProgress() {
+        int p, s, d, f;
+        synchronized (this) {
+            p = pending;
+            s = saved;
+            d = deferred;
+            f = failed;
+        }
+        mainHandler.post(() -> {
+            Listener l = listener;
+            if (l != null) l.onProgress(p, s, d, f);
+        });
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.plantapp;
+
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Build;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageReference;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+//every write of a capture goes through here: the image uploads, the history document and its list summary
+//captures/{id} holds the full document, captureSummaries/{id} the small copy list screens read
+final class CaptureRepository {
+
+    //long edge of the list/garden thumbnail
+    static final int THUMB_EDGE_PX = 256;
+    private static final int THUMB_QUALITY = 80;
+
+    //number of captures, kept on the user document next to the captures subcollection
+    static final String CAPTURE_COUNT = "captureCount";
+
+    //set on the user document once the count covers every capture, saves on an account from before the
+    //counter already bump it, so the count alone doesn't tell
+    static final String CAPTURE_COUNT_READY = "captureCountReady";
+
+    //set on the user document once every capture has a summary
+    static final String SUMMARIES_READY = "summariesReady";
+
+    static final String CAPTURES = "captures";
+
+    //capture fields: raw description per role and the alternates, see addIdentification
+    static final String DESCRIPTIONS = "descriptions";
+    static final String ALTERNATES = "alternates";
+    static final String SUMMARIES = "captureSummaries";
+
+    //firestore limit is 500 writes per batch, a capture takes two (document and summary) and one is left for the counter
+    static final int DELETES_PER_BATCH = 249;
+    private static final int SUMMARIES_PER_BATCH = 500;
+
+    //backfills started in this process by uid, a resume while one runs or after it finished gets the same task
+    //instead of starting another, a failed one is dropped so the next call tries again
+    private static final Map<String, Task<Long>> countBackfills = new HashMap<>();
+    private static final Map<String, Task<Void>> summaryBackfills = new HashMap<>();
+
+    //fields list screens need, everything but the long description
+    private static final String[] SUMMARY_FIELDS = {
+            "url", "thumbUrl", "role", "commonName", "scientificName", "confidence", "timestamp"
+    };
+
+    //the full image and its thumbnail uploads, each resolves to a download url
+    static final class Upload {
+        //when the capture was taken, also its file name
+        final long capturedAt;
+        final Task<Uri> image;
+        final Task<Uri> thumbnail;
+        private final StorageReference imageRef;
+        private final StorageReference thumbnailRef;
+
+        Upload(long capturedAt, Task<Uri> image, Task<Uri> thumbnail,
+               StorageReference imageRef, StorageReference thumbnailRef) {
+            this.capturedAt = capturedAt;
+            this.image = image;
+            this.thumbnail = thumbnail;
+            this.imageRef = imageRef;
+            this.thumbnailRef = thumbnailRef;
+        }
+
+        //delete whatever made it to storage once the capture won't be saved, so no file is left behind
+        void discard() {
+            Tasks.whenAllComplete(image, thumbnail).addOnCompleteListener(done -> {
+                if (image.isSuccessful()) imageRef.delete();
+                if (thumbnail.isSuccessful()) thumbnailRef.delete();
+            });
+        }
+    }
+
+    private CaptureRepository() {}
+
+    //upload a captured jpeg to captures/{uid}/ and a small webp of it to thumbs/{uid}/ alongside it,
+    //both named after the time the capture was taken
+    //encodes the thumbnail, must not be called on the main thread
+    static Upload uploadCapture(String uid, byte[] jpeg, long capturedAt) {
+        String name = String.valueOf(capturedAt);
+        StorageReference imageRef = FirebaseStorage.getInstance()
+                .getReference("captures")
+                .child(uid)
+                .child(name + ".jpg");
+        StorageReference thumbnailRef = FirebaseStorage.getInstance()
+                .getReference("thumbs")
+                .child(uid)
+                .child(name + ".webp");
+        Task<Uri> image = upload(imageRef, jpeg);
+
+        byte[] thumb = encodeThumbnail(jpeg);
+        Task<Uri> thumbnail = thumb != null
+                ? upload(thumbnailRef, thumb)
+                : Tasks.forException(new IllegalArgumentException("Failed to decode image"));
+
+        return new Upload(capturedAt, image, thumbnail, imageRef, thumbnailRef);
+    }
+
+    private static Task<Uri> upload(StorageReference ref, byte[] bytes) {
+        return ref.putBytes(bytes)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) throw task.getException();
+                    return ref.getDownloadUrl();
+                });
+    }
+
+    //THUMB_EDGE_PX webp of the capture, null if it can't be decoded
+    static byte[] encodeThumbnail(byte[] jpeg) {
+        Bitmap decoded = BitmapDecoder.decode(jpeg, THUMB_EDGE_PX, THUMB_EDGE_PX);
+        if (decoded == null) return null;
+
+        Bitmap scaled = decoded;
+        int longEdge = Math.max(decoded.getWidth(), decoded.getHeight());
+        if (longEdge > THUMB_EDGE_PX) {
+            float scale = THUMB_EDGE_PX / (float) longEdge;
+            scaled = Bitmap.createScaledBitmap(decoded,
+                    Math.round(decoded.getWidth() * scale),
+                    Math.round(decoded.getHeight() * scale),
+                    true);
+            if (scaled != decoded) BitmapDecoder.release(decoded);
+        }
+
+        Bitmap.CompressFormat format = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        scaled.compress(format, THUMB_QUALITY, out);
+        BitmapDecoder.release(scaled);
+        return out.toByteArray();
+    }
+
+    //history document fields for one identified capture, dated when it was taken rather than when it was saved
+    //thumbUrl may be null when the thumbnail upload failed, readers fall back to url
+    static Map<String, Object> buildCapture(String imageUrl, String thumbUrl, String role, String commonName,
+                                            String scientificName, String description, int confidence,
+                                            long capturedAt) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("url", imageUrl);
+        if (thumbUrl != null) data.put("thumbUrl", thumbUrl);
+        data.put("role", role);
+        data.put("timestamp", capturedAt);
+        data.put("commonName", commonName);
+        data.put("scientificName", scientificName);
+        data.put("description", description);
+        data.put("confidence", confidence);
+        return data;
+    }
+
+    //the role independent alternates and the raw description keyed by role, so the description for
+    //another role can be added later without identifying the plant again
+    static void addIdentification(Map<String, Object> data, String role, PlantIdentification result) {
+        List<Map<String, Object>> alternates = new ArrayList<>();
+        for (PlantIdentification.Candidate c : result.alternates) {
+            Map<String, Object> alternate = new HashMap<>();
+            alternate.put("commonName", c.commonName);
+            alternate.put("scientificName", c.scientificName);
+            alternate.put("confidence", c.confidence);
+            alternates.add(alternate);
+        }
+        data.put(ALTERNATES, alternates);
+
+        Map<String, Object> descriptions = new HashMap<>();
+        descriptions.put(role, result.description);
+        data.put(DESCRIPTIONS, descriptions);
+    }
+
+    //the raw description stored for this role, null if it hasn't been generated yet
+    static String descriptionFor(DocumentSnapshot capture, String role) {
+        Object descriptions = capture.get(DESCRIPTIONS);
+        if (!(descriptions instanceof Map)) return null;
+        Object description = ((Map<?, ?>) descriptions).get(role);
+        return description instanceof String && !((String) description).isEmpty() ? (String) description : null;
+    }
+
+    //the identification back from a capture document, with the description for role or empty
+    static PlantIdentification identificationOf(DocumentSnapshot capture, String role) {
+        List<PlantIdentification.Candidate> alternates = new ArrayList<>();
+        Object stored = capture.get(ALTERNATES);
+        if (stored instanceof List) {
+            for (Object item : (List<?>) stored) {
+                if (!(item instanceof Map)) continue;
+                Map<?, ?> alternate = (Map<?, ?>) item;
+                Object confidence = alternate.get("confidence");
+                alternates.add(new PlantIdentification.Candidate(
+                        (String) alternate.get("commonName"),
+                        (String) alternate.get("scientificName"),
+                        confidence instanceof Number ? ((Number) confidence).intValue() : 0));
+            }
+        }
+        Long confidence = capture.getLong("confidence");
+        return new PlantIdentification(capture.getString("commonName"), capture.getString("scientificName"),
+                descriptionFor(capture, role), confidence != null ? confidence.intValue() : 0, alternates);
+    }
+
+    //keep a generated description for another role on the capture
+    static Task<Void> saveDescription(String uid, String docId, String role, String description) {
+        return userRef(uid).collection(CAPTURES).document(docId)
+                .update(FieldPath.of(DESCRIPTIONS, role), description);
+    }
+
+    //list fields of a capture document
+    static Map<String, Object> buildSummary(Map<String, Object> capture) {
+        Map<String, Object> summary = new HashMap<>();
+        for (String field : SUMMARY_FIELDS) {
+            Object value = capture.get(field);
+            if (value != null) summary.put(field, value);
+        }
+        return summary;
+    }
+
+    //add the capture and its summary to the user's history and bump the count, all in one batch
+    //a batch queues while offline, an account from before the counter is counted again by backfillCaptureCount
+    static Task<DocumentReference> saveCapture(String uid, Map<String, Object> data) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference user = userRef(uid);
+        DocumentReference capture = user.collection(CAPTURES).document();
+
+        WriteBatch batch = db.batch();
+        batch.set(capture, data);
+        batch.set(user.collection(SUMMARIES).document(capture.getId()), buildSummary(data));
+        batch.set(user, countChange(1), SetOptions.merge());
+        return batch.commit().continueWith(task -> {
+            if (!task.isSuccessful()) throw task.getException();
+            return capture;
+        });
+    }
+
+    //remove one capture from the user's history and drop the count with it
+    static Task<Void> deleteCapture(String uid, String docId) {
+        return deleteCaptures(uid, Collections.singletonList(docId));
+    }
+
+    //remove captures and their summaries in batches committed one after another, each drops the count by
+    //the captures it lists, CaptureBulkDeleter recounts once a clear is done
+    static Task<Void> deleteCaptures(String uid, List<String> docIds) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference user = userRef(uid);
+
+        Task<Void> chain = Tasks.forResult(null);
+        for (int start = 0; start < docIds.size(); start += DELETES_PER_BATCH) {
+            List<String> chunk = docIds.subList(start, Math.min(start + DELETES_PER_BATCH, docIds.size()));
+            chain = chain.onSuccessTask(ignored -> {
+                WriteBatch batch = db.batch();
+                for (String docId : chunk) {
+                    batch.delete(user.collection(CAPTURES).document(docId));
+                    batch.delete(user.collection(SUMMARIES).document(docId));
+                }
+                batch.set(user, countChange(-chunk.size()), SetOptions.merge());
+                return batch.commit();
+            });
+        }
+        return chain;
+    }
+
+    //the stored capture count, -1 if the account is from before the counter was kept and hasn't been counted yet
+    static long captureCountOf(DocumentSnapshot userDoc) {
+        if (userDoc == null || !Boolean.TRUE.equals(userDoc.getBoolean(CAPTURE_COUNT_READY))) return -1L;
+        Long count = userDoc.getLong(CAPTURE_COUNT);
+        return count != null ? Math.max(0L, count) : -1L;
+    }
+
+    //count the captures on the server, used when the user document has no count yet
+    static Task<Long> countCaptures(String uid) {
+        return userRef(uid)
+                .collection(CAPTURES)
+                .count()
+                .get(AggregateSource.SERVER)
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) throw task.getException();
+                    return task.getResult().getCount();
+                });
+    }
+
+    //one-off count for accounts from before the counter, stored so later reads only need the user document
+    static Task<Long> backfillCaptureCount(String uid) {
+        return once(countBackfills, uid, () -> recountCaptures(uid));
+    }
+
+    //count the captures on the server and store the result as the count
+    //a capture saved between the count and the write is missed, the count is for display only
+    static Task<Long> recountCaptures(String uid) {
+        return countCaptures(uid).onSuccessTask(count -> {
+            Map<String, Object> data = new HashMap<>();
+            data.put(CAPTURE_COUNT, count);
+            data.put(CAPTURE_COUNT_READY, true);
+            return userRef(uid).set(data, SetOptions.merge()).continueWith(task -> {
+                if (!task.isSuccessful()) throw task.getException();
+                return count;
+            });
+        });
+    }
+
+    static boolean hasSummaries(DocumentSnapshot userDoc) {
+        return userDoc != null && Boolean.TRUE.equals(userDoc.getBoolean(SUMMARIES_READY));
+    }
+
+    //what list screens read: the summaries once the account has them, the full captures before that
+    static CollectionReference listCollection(DocumentSnapshot userDoc) {
+        return userDoc.getReference().collection(hasSummaries(userDoc) ? SUMMARIES : CAPTURES);
+    }
+
+    //the full capture, for the detail screen
+    static Task<DocumentSnapshot> loadCapture(String uid, String docId) {
+        return userRef(uid).collection(CAPTURES).document(docId).get();
+    }
+
+    //one-off copy of every capture into captureSummaries for accounts from before the summaries,
+    //the flag is only set once all of them are written
+    static Task<Void> backfillSummaries(String uid) {
+        return once(summaryBackfills, uid, () -> copySummaries(uid));
+    }
+
+    private static Task<Void> copySummaries(String uid) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference user = userRef(uid);
+
+        return user.collection(CAPTURES).get().onSuccessTask(qs -> {
+            List<DocumentSnapshot> docs = qs.getDocuments();
+            List<Task<Void>> commits = new ArrayList<>();
+            for (int start = 0; start < docs.size(); start += SUMMARIES_PER_BATCH) {
+                WriteBatch batch = db.batch();
+                for (DocumentSnapshot doc : docs.subList(start, Math.min(start + SUMMARIES_PER_BATCH, docs.size()))) {
+                    Map<String, Object> data = doc.getData();
+                    if (data == null) continue;
+                    batch.set(user.collection(SUMMARIES).document(doc.getId()), buildSummary(data));
+                }
+                commits.add(batch.commit());
+            }
+            return Tasks.whenAll(commits);
+        }).onSuccessTask(ignored -> {
+            Map<String, Object> data = new HashMap<>();
+            data.put(SUMMARIES_READY, true);
+            return user.set(data, SetOptions.merge());
+        });
+    }
+
+    //the running or finished task for uid, a new one from start if there is none or the last one failed
+    private static <T> Task<T> once(Map<String, Task<T>> running, String uid, Supplier<Task<T>> start) {
+        synchronized (running) {
+            Task<T> task = running.get(uid);
+            if (task != null && (!task.isComplete() || task.isSuccessful())) return task;
+            Task<T> started = start.get();
+            running.put(uid, started);
+            started.addOnFailureListener(e -> {
+                synchronized (running) {
+                    running.remove(uid, started);
+                }
+            });
+            return started;
+        }
+    }
+
+    private static DocumentReference userRef(String uid) {
+        return FirebaseFirestore.getInstance().collection("users").document(uid);
+    }
+
+    private static Map<String, Object> countChange(long delta) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(CAPTURE_COUNT, FieldValue.increment(delta));
+        return data;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.plantapp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+//process-local handoff of captured jpegs from the camera to the identification screen
+//lets identification start from the bytes in memory while the storage upload runs alongside it
+final class CaptureStore {
+
+    //captures kept in memory before the oldest is dropped
+    private static final int MAX_CAPTURES = 4;
+
+    //a captured frame and its storage uploads
+    static final class Capture {
+        final String id;
+        final byte[] jpeg;
+        final CaptureRepository.Upload upload;
+
+        Capture(String id, byte[] jpeg, CaptureRepository.Upload upload) {
+            this.id = id;
+            this.jpeg = jpeg;
+            this.upload = upload;
+        }
+    }
+
+    private static final Map<String, Capture> captures = new LinkedHashMap<>();
+
+    private CaptureStore() {}
+
+    //keep the capture and return its id for the intent extra
+    static synchronized String put(byte[] jpeg, CaptureRepository.Upload upload) {
+        String id = UUID.randomUUID().toString();
+        captures.put(id, new Capture(id, jpeg, upload));
+
+        Iterator<String> it = captures.keySet().iterator();
+        while (captures.size() > MAX_CAPTURES && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        return id;
+    }
+
+    //null if the id is unknown, e.g. the process was restarted
+    static synchronized Capture get(String id) {
+        if (id == null) return null;
+        return captures.get(id);
+    }
+
+    static synchronized void remove(String id) {
+        if (id != null) captures.remove(id);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.plantapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//uploads, identifies and saves the captures waiting in the CaptureOutbox once there is a network
+public class CaptureSyncWorker extends Worker {
+
+    private static final String TAG = "CaptureSyncWorker";
+    private static final String WORK_NAME = "capture_outbox_sync";
+
+    //captures handled by one run, a longer outbox continues in a follow-up run
+    private static final int MAX_PER_RUN = 5;
+    private static final long BACKOFF_SECONDS = 30L;
+
+    public CaptureSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    //run once there is a network, a run that is already waiting or running is kept
+    static void schedule(Context context) {
+        enqueue(context, ExistingWorkPolicy.KEEP);
+    }
+
+    private static void enqueue(Context context, ExistingWorkPolicy policy) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(CaptureSyncWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniqueWork(WORK_NAME, policy, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        //captures stay in the outbox until someone is logged in again
+        if (user == null) return Result.retry();
+
+        //only this user's captures, another account's wait until it logs in again
+        CaptureOutbox outbox = CaptureOutbox.get(getApplicationContext());
+        List<CaptureOutbox.Entry> batch = outbox.pending(user.getUid(), MAX_PER_RUN);
+        if (batch.isEmpty()) return Result.success();
+
+        PlantIdentifier identifier = new PlantIdentifier();
+        int synced = 0;
+        for (CaptureOutbox.Entry entry : batch) {
+            if (isStopped()) return Result.retry();
+
+            byte[] jpeg;
+            try {
+                jpeg = CaptureOutbox.read(entry);
+            } catch (IOException e) {
+                //unreadable file, retrying won't help
+                Log.w(TAG, "dropping unreadable capture " + entry.id, e);
+                outbox.remove(entry.id);
+                continue;
+            }
+
+            try {
+                CaptureProcessor.identifyUploadAndSave(getApplicationContext(), identifier, user.getUid(), jpeg,
+                        entry.role, entry.capturedAt);
+                outbox.remove(entry.id);
+                synced++;
+            } catch (Exception e) {
+                //the connection dropped again or the model gave no answer, back off and try the rest later
+                Log.w(TAG, "sync failed for " + entry.id, e);
+                PerfMetrics.record(getApplicationContext(), "outbox_synced", synced);
+                return Result.retry();
+            }
+        }
+
+        PerfMetrics.record(getApplicationContext(), "outbox_synced", synced);
+        if (outbox.size(user.getUid()) > 0) enqueue(getApplicationContext(), ExistingWorkPolicy.APPEND_OR_REPLACE);
+        return Result.success();
+    }
+}
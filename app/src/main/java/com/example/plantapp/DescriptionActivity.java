@@ -5,9 +5,9 @@ import android.animation.AnimatorListenerAdapter;
 import android.animation.ObjectAnimator;
 import android.animation.PropertyValuesHolder;
 import android.animation.ValueAnimator;
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.PorterDuff;
 import android.os.Bundle;
 import android.os.Handler;
@@ -29,37 +29,16 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
-import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.MoreExecutors;
-
-import com.google.firebase.ai.FirebaseAI;
-import com.google.firebase.ai.GenerativeModel;
-import com.google.firebase.ai.java.GenerativeModelFutures;
-import com.google.firebase.ai.type.Content;
-import com.google.firebase.ai.type.GenerateContentResponse;
-import com.google.firebase.ai.type.GenerativeBackend;
-
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
-import java.util.List;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class DescriptionActivity extends AppCompatActivity {
 
@@ -73,6 +52,7 @@ public class DescriptionActivity extends AppCompatActivity {
     private String scientificName  = "";
     private String commonName      = "";
     private int confidenceScore    = 0;
+    private PlantIdentification identification;
 
     private String finalDescriptionText = "";
 
@@ -80,19 +60,25 @@ public class DescriptionActivity extends AppCompatActivity {
     private Runnable loadingRunnable = null;
     private boolean loading = false;
 
-    private final AtomicInteger pending = new AtomicInteger(5);
     private final AtomicBoolean savedOnce = new AtomicBoolean(false);
 
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+
     private String userRole;
     private String imageUrl;
-    private Bitmap imageBitmap;
-
-    static class Candidate {
-        final String commonName, scientificName;
-        final int confidence;
-        Candidate(String c, String s, int k) { commonName = c; scientificName = s; confidence = k; }
-    }
-    private final List<Candidate> alternates = new ArrayList<>();
+    private String thumbUrl;
+    //set and released on io
+    private volatile Bitmap imageBitmap;
+
+    //set when the camera handed the capture over in memory
+    private String captureId;
+    private CaptureStore.Capture capture;
+    //when the photo was taken, the history is dated by it
+    private long capturedAt;
+    private boolean resultReady = false;
+    //the upload failed and the capture goes to the outbox instead, main thread only
+    private boolean uploadFailed = false;
+    private boolean keptForSync = false;
 
     private View identificationOverlay;
     private ImageView overlayLogo;
@@ -100,88 +86,7 @@ public class DescriptionActivity extends AppCompatActivity {
     private TextView overlayStatusText;
     private ObjectAnimator logoPulseAnimator;
 
-    //possible identification results
-    private enum IdentificationResult {
-        IDENTIFIED_OK,
-        WARNING,
-        UNKNOWN
-    }
-
-    //counters to possible issues with the thought appearing instead of the result
-    private static final Pattern LEAK_HEAD = Pattern.compile(
-            "^(?:\\s*(?i:(THOUGHTS?|THOUGHT|ANALYSIS|ANALYZE|REASONING|REASON|THINKING|THINK|PLAN|REFLECTION|CHAIN[- ]?OF[- ]?THOUGHT))\\s*:?\\b.*\\R)+",
-            Pattern.DOTALL);
-    private static final Pattern LEAK_LINES = Pattern.compile(
-            "(?m)^(?i:(THOUGHTS?|THOUGHT|ANALYSIS|ANALYZE|REASONING|REASON|THINKING|THINK|PLAN|REFLECTION|CHAIN[- ]?OF[- ]?THOUGHT))\\s*:?\\b.*\\R?");
-    private static final Pattern LETS_THINK = Pattern.compile("(?i)\\b(let'?s\\s+think|step\\s+by\\s+step)\\b.*");
-
-    private static final Pattern INSTRUCTION_ECHO_LINES = Pattern.compile(
-            "(?mi)^(?:do\\s*not\\s*include.*|never\\s*output.*|plain\\s*text\\s*only.*|respond\\s*with\\s*only.*|no\\s*prose.*|no\\s*code\\s*fences.*)\\s*$"
-    );
-
-    private static final Pattern NAME_ALLOW = Pattern.compile("^[A-Za-z][A-Za-z .'-]{0,63}$");
-
-    private String stripThoughtPreamble(String s) {
-        if (s == null) return "";
-        String t = LEAK_HEAD.matcher(s).replaceFirst("");
-        t = LEAK_LINES.matcher(t).replaceAll("");
-        t = LETS_THINK.matcher(t).replaceAll("");
-        return t.trim();
-    }
-    private boolean startsWithLeak(String s) {
-        if (s == null) return false;
-        String t = s.trim();
-        if (t.matches("(?is)^(THOUGHTS?|THOUGHT|ANALYSIS|ANALYZE|REASONING|REASON|THINKING|THINK|PLAN|REFLECTION|CHAIN[- ]?OF[- ]?THOUGHT)\\s*:?\\b.*")) return true;
-        if (t.matches("(?is)^```[a-zA-Z0-9]*\\s*(THOUGHTS?|THOUGHT|ANALYSIS|REASONING|THINKING|CHAIN[- ]?OF[- ]?THOUGHT)\\b.*")) return true;
-        if (t.matches("(?is)^let'?s\\s+think.*")) return true;
-        return false;
-    }
-    private String hardStripMetaLabels(String s) {
-        if (s == null) return "";
-        s = s.replaceAll("(?mi)^(THOUGHTS?|THOUGHT|ANALYSIS|REASONING|THINKING|PLAN|REFLECTION|CHAIN[- ]?OF[- ]?THOUGHT)\\s*:.*$", "");
-        s = s.replaceAll("(?i)\\b(let'?s\\s+think|step\\s+by\\s+step)\\b.*", "");
-        return s.trim();
-    }
-    private String stripInstructionEcho(String s) {
-        if (s == null) return "";
-        String t = INSTRUCTION_ECHO_LINES.matcher(s).replaceAll("");
-        return t.trim();
-    }
-    private String gateNameOrFallback(String candidate, String fallback) {
-        if (candidate == null) return fallback;
-        String c = candidate.trim();
-        if (c.contains("\n")) {
-            for (String line : c.split("\\R")) {
-                String ln = line.trim();
-                if (!ln.isEmpty()) { c = ln; break; }
-            }
-        }
-        if (c.matches("(?is)^(THOUGHTS?|THOUGHT|ANALYSIS|REASONING|THINKING|PLAN|REFLECTION|CHAIN[- ]?OF[- ]?THOUGHT)\\s*:.*"))
-            return fallback;
-        if (!NAME_ALLOW.matcher(c).matches())
-            return fallback;
-        return c;
-    }
-
-    private interface OnText { void accept(String text); }
-
-    //retries if the response looks like a thought
-    private void generateTextWithRetry(GenerativeModelFutures model, Content content, int maxRetries, OnText onText) {
-        Executor cb = MoreExecutors.directExecutor();
-        ListenableFuture<GenerateContentResponse> fut = model.generateContent(content);
-        Futures.addCallback(fut, new FutureCallback<GenerateContentResponse>() {
-            @Override public void onSuccess(GenerateContentResponse r) {
-                String raw = (r != null && r.getText() != null) ? r.getText() : "";
-                if (startsWithLeak(raw) && maxRetries > 0) {
-                    generateTextWithRetry(model, content, maxRetries - 1, onText);
-                    return;
-                }
-                String cleaned = stripThoughtPreamble(raw);
-                onText.accept(cleaned);
-            }
-            @Override public void onFailure(Throwable t) { onText.accept(""); }
-        }, cb);
-    }
+    private boolean firstTextShown = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -192,8 +97,11 @@ public class DescriptionActivity extends AppCompatActivity {
         //get role and image from camera
         userRole = getIntent().getStringExtra("userRole");
         imageUrl = getIntent().getStringExtra("imageUrl");
+        captureId = getIntent().getStringExtra("captureId");
+        capture = CaptureStore.get(captureId);
+        capturedAt = capture != null ? capture.upload.capturedAt : System.currentTimeMillis();
         if (userRole == null) userRole = "Hiker";
-        if (imageUrl == null || imageUrl.trim().isEmpty()) {
+        if (capture == null && (imageUrl == null || imageUrl.trim().isEmpty())) {
             Toast.makeText(this, "Missing image URL", Toast.LENGTH_LONG).show();
             finish();
             return;
@@ -245,7 +153,31 @@ public class DescriptionActivity extends AppCompatActivity {
 
         startLoadingDots(commonNameTv, "Loading");
 
-        downloadImageAndRunGemini(imageUrl, userRole);
+        if (capture != null) {
+            //bytes came straight from the camera, the storage upload finishes in parallel
+            watchUpload(capture);
+            io.execute(() -> runGemini(capture.jpeg, userRole));
+        } else {
+            downloadImageAndRunGemini(imageUrl, userRole);
+        }
+    }
+
+    //keep track of the uploads so the capture can be saved once it has its urls
+    private void watchUpload(CaptureStore.Capture c) {
+        Tasks.whenAllComplete(c.upload.image, c.upload.thumbnail)
+                .addOnSuccessListener(tasks -> {
+                    if (!c.upload.image.isSuccessful()) {
+                        c.upload.discard();
+                        CaptureStore.remove(c.id);
+                        uploadFailed = true;
+                        keepForSyncIfNeeded(false);
+                        return;
+                    }
+                    //the thumbnail is optional, lists fall back to the full image
+                    if (c.upload.thumbnail.isSuccessful()) thumbUrl = c.upload.thumbnail.getResult().toString();
+                    imageUrl = c.upload.image.getResult().toString();
+                    saveCaptureMetadataIfNeeded();
+                });
     }
 
     //download the image from firebase and run it through gemini to create description
@@ -253,229 +185,156 @@ public class DescriptionActivity extends AppCompatActivity {
         StorageReference ref = FirebaseStorage.getInstance().getReferenceFromUrl(url);
         final long MAX = 8L * 1024L * 1024L;
 
-        ref.getBytes(MAX).addOnSuccessListener(bytes -> {
-            imageBitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-            if (imageBitmap == null) {
+        ref.getBytes(MAX).addOnSuccessListener(bytes -> io.execute(() -> runGemini(bytes, role)))
+                .addOnFailureListener(e -> {
+                    stopLoadingDots();
+                    Toast.makeText(this, "Failed to download image: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                    enableButton(backBtn);
+                    enableButton(takeAnotherBtn);
+                });
+    }
+
+    //run the capture bytes through gemini to create description, called on the io thread
+    private void runGemini(byte[] bytes, String role) {
+        //downscale and re-encode once, every model request shares this buffer
+        InferenceImage image = InferenceImage.prepare(bytes);
+        if (image == null) {
+            runOnUiThread(() -> {
                 stopLoadingDots();
                 Toast.makeText(this, "Failed to decode image", Toast.LENGTH_LONG).show();
                 enableButton(backBtn);
                 enableButton(takeAnotherBtn);
-                while (pending.getAndDecrement() > 0) {}
-                maybeDeliverAll();
-                return;
-            }
-
-            plantImageView.setImageBitmap(imageBitmap);
-
-            GenerativeModel ai = FirebaseAI.getInstance(GenerativeBackend.googleAI())
-                    .generativeModel("gemini-2.5-flash");
-            GenerativeModelFutures model = GenerativeModelFutures.from(ai);
-
-            String descPromptText =
-                    buildRolePromptNoFormatting(role, "this plant") +
-                            " Never output lines starting with THOUGHT:, THOUGHTS:, ANALYSIS:, REASONING:, or similar. Do not include meta text.";
-            Content descContent = new Content.Builder()
-                    .addImage(imageBitmap)
-                    .addText(descPromptText)
-                    .build();
-            generateTextWithRetry(model, descContent, 1, cleaned -> {
-                descriptionText = sanitizePlainTextKeepDashes(cleaned);
-                maybeDeliverAll();
             });
+            return;
+        }
 
-            Content sciContent = new Content.Builder()
-                    .addImage(imageBitmap)
-                    .addText(
-                            "From this image, what is the scientific name (Genus species) of this plant? " +
-                                    "Respond with only the scientific name as plain text, no punctuation or formatting. " +
-                                    "Do not include analysis, steps, thoughts, or meta labels."
-                    ).build();
-            generateTextWithRetry(model, sciContent, 1, cleaned -> {
-                String raw = (cleaned == null) ? "" : cleaned.trim();
-                scientificName = cleanScientificName(sanitizePlainText(raw));
-                scientificName = gateNameOrFallback(scientificName, "");
-                maybeDeliverAll();
-            });
+        imageBitmap = image.bitmap;
+        runOnUiThread(() -> plantImageView.setImageBitmap(imageBitmap));
 
-            Content commonContent = new Content.Builder()
-                    .addImage(imageBitmap)
-                    .addText(
-                            "From this image, return STRICT JSON only with the common name of this plant. " +
-                                    "Schema: {\"common_name\":\"...\"}. No prose, no code fences, no analysis, no thoughts."
-                    ).build();
-            generateTextWithRetry(model, commonContent, 1, cleaned -> {
-                String raw = (cleaned == null) ? "" : cleaned.trim();
-                String parsed = parseCommonNameJson(raw);
-                if (parsed.isEmpty()) parsed = cleanCommonName(sanitizePlainText(raw));
-                parsed = stripInstructionEcho(parsed);
-                commonName = gateNameOrFallback(parsed, "Unknown plant");
-                maybeDeliverAll();
-            });
+        //a near duplicate of an earlier capture reuses that identification without calling the model,
+        //under another role only that role's description is generated
+        IdentificationCache cache = IdentificationCache.get(this);
+        long hash = ImageHash.ofBitmap(image.bitmap);
+        IdentificationCache.Hit hit = cache.lookup(hash, role);
+        if (hit != null && hit.result() != null) {
+            deliverResult(hit.result());
+            return;
+        }
 
-            Content confContent = new Content.Builder()
-                    .addImage(imageBitmap)
-                    .addText(
-                            "On a scale from 0 to 100, how confident are you in your plant identification from this image? " +
-                                    "Respond with only the integer number (0-100), no words, no percent sign. " +
-                                    "Do not include analysis, steps, thoughts, or meta labels."
-                    ).build();
-            generateTextWithRetry(model, confContent, 1, cleaned -> {
-                String raw = (cleaned == null || cleaned.isEmpty()) ? "0" : cleaned.trim();
-                confidenceScore = clamp0to100(extractFirstInt(raw));
-                maybeDeliverAll();
+        PlantIdentifier identifier = new PlantIdentifier();
+        if (hit != null) {
+            PlantIdentification known = hit.identification;
+            runOnUiThread(() -> {
+                showFirstText();
+                commonNameTv.setText(known.commonName);
+                scientificNameTv.setText(known.scientificName);
             });
-
-            Content altsContent = new Content.Builder()
-                    .addImage(imageBitmap)
-                    .addText(
-                            "Identify up to 3 alternate plausible plant species for this image. " +
-                                    "Return STRICT JSON array only, no prose. " +
-                                    "Each item must be: {\"common_name\":\"...\",\"scientific_name\":\"Genus species\",\"confidence\":INT0to100}. " +
-                                    "Confidence is your reliability score 0-100. If none, return []. " +
-                                    "Do not include analysis, steps, thoughts, meta labels, or code fences."
-                    )
-                    .build();
-            generateTextWithRetry(model, altsContent, 1, cleaned -> {
-                String raw = (cleaned == null || cleaned.isEmpty()) ? "[]" : cleaned.trim();
-                parseAlternatesJson(raw);
-                maybeDeliverAll();
+            identifier.describe(image, role, description -> {
+                cache.putDescription(hash, role, description);
+                deliverResult(known.withDescription(description));
             });
+            return;
+        }
 
-        }).addOnFailureListener(e -> {
-            stopLoadingDots();
-            Toast.makeText(this, "Failed to download image: " + e.getMessage(), Toast.LENGTH_LONG).show();
-            enableButton(backBtn);
-            enableButton(takeAnotherBtn);
-            while (pending.getAndDecrement() > 0) {}
-            maybeDeliverAll();
+        //stream the identification so names and description fill in as they arrive
+        identifier.identifyStreaming(image, role, new PlantIdentifier.StreamListener() {
+            @Override public void onCommonName(String name) {
+                runOnUiThread(() -> {
+                    showFirstText();
+                    commonNameTv.setText(name);
+                });
+            }
+            @Override public void onScientificName(String name) {
+                runOnUiThread(() -> scientificNameTv.setText(name));
+            }
+            @Override public void onDescriptionProgress(String descriptionSoFar) {
+                runOnUiThread(() -> {
+                    showFirstText();
+                    descriptionTv.setText(descriptionSoFar);
+                });
+            }
+            @Override public void onResult(PlantIdentification result) {
+                cache.put(hash, role, result);
+                deliverResult(result);
+            }
         });
     }
 
-    //prompts for specific roles
-    private String buildRolePromptNoFormatting(String roleRaw, String plantNameHint) {
-        String role = (roleRaw == null) ? "" : roleRaw.trim().toLowerCase();
-        String baseRule =
-                "Write final answer only. Do NOT include analysis, steps, thoughts, or reasoning. " +
-                        "Never output lines starting with THOUGHT:, THOUGHTS:, ANALYSIS:, REASONING:, or similar. " +
-                        "Plain text only. Use greater than (>) to denote each point; one point per line. " +
-                        "Keep under 100 words total. ";
-
-        switch (role) {
-            case "hiker":
-                return baseRule + "From the provided image of a plant, write a concise field-guide entry " +
-                        "for a hiker (one line per point). Focus on habitat, identifying features, seasonality, " +
-                        "elevation, and safety notes about toxic or similar-looking plants.";
-            case "chef":
-                return baseRule + "From the provided image of a plant, write a culinary summary for a chef " +
-                        "(one line per point). Focus on edible parts, flavor, aroma, seasonal availability, " +
-                        "texture, preparation methods, and ideal pairings.";
-            case "gardener":
-                return baseRule + "From the provided image of a plant, write a horticultural overview for a gardener " +
-                        "(one line per point). Cover light requirements, soil, watering, propagation, and common pests/diseases.";
-            default:
-                return baseRule + "From the provided image, write an encyclopedia-style summary of the plant " +
-                        "(one line per point), describing appearance, natural habitat, and uses.";
-        }
-    }
-
-    //populate the UI with the descriptions after responses are generated
-    private void maybeDeliverAll() {
-        if (pending.decrementAndGet() == 0) {
-            runOnUiThread(() -> {
-                stopLoadingDots();
+    //hide the overlay as soon as there is something useful to read
+    private void showFirstText() {
+        if (firstTextShown) return;
+        firstTextShown = true;
+        stopLoadingDots();
+        stopLogoPulse();
+        fadeOutOverlay();
+
+        //the rest of this identification and its save keep going in the background,
+        //so the next capture can start while this one finishes
+        enableButton(takeAnotherBtn);
+    }
+
+    //populate the UI with the descriptions after the identification is done
+    //called on the io thread or a model callback thread, the text work and the verdict stay off the main thread
+    private void deliverResult(PlantIdentification result) {
+        String formattedDescription = IdentificationParser.formatDescription(result);
+        String cleanCommonName = IdentificationParser.stripInstructionEcho(result.commonName);
+        String cleanScientificName = IdentificationParser.stripInstructionEcho(result.scientificName);
+        if (IdentificationParser.startsWithLeak(cleanCommonName)) cleanCommonName = "Unknown plant";
+        if (IdentificationParser.startsWithLeak(cleanScientificName)) cleanScientificName = "";
+        IdentificationClassifier.Verdict verdict =
+                IdentificationClassifier.classify(formattedDescription, cleanCommonName, result.confidence);
+
+        String shownCommonName = cleanCommonName;
+        String shownScientificName = cleanScientificName;
+        runOnUiThread(() -> {
+            identification = result;
+            descriptionText = result.description;
+            confidenceScore = result.confidence;
+            finalDescriptionText = formattedDescription;
+            commonName = shownCommonName;
+            scientificName = shownScientificName;
 
-                String formattedDescription = formatPoints(descriptionText);
-                formattedDescription = hardStripMetaLabels(formattedDescription);
-                formattedDescription = stripInstructionEcho(formattedDescription);
-                if (formattedDescription.isEmpty()) {
-                    formattedDescription = "No description available for this image.";
-                }
-
-                if (confidenceScore < 80 && !alternates.isEmpty()) {
-                    String sentence = buildAlternatesSentence(alternates);
-                    if (!sentence.isEmpty()) {
-                        formattedDescription = formattedDescription + "\n\n" + sentence;
-                    }
-                }
-
-                finalDescriptionText = formattedDescription;
-
-                commonName = stripInstructionEcho(commonName);
-                scientificName = stripInstructionEcho(scientificName);
-                if (startsWithLeak(commonName)) commonName = "Unknown plant";
-                if (startsWithLeak(scientificName)) scientificName = "";
-
-                commonNameTv.setText(commonName);
-                scientificNameTv.setText(scientificName);
-                descriptionTv.setText(formattedDescription);
-
-                confidenceTv.setVisibility(View.VISIBLE);
-                confidenceBar.setVisibility(View.VISIBLE);
-                confidenceBar.setProgress(confidenceScore);
-                confidenceTv.setText("Confidence: " + confidenceScore + "%");
-                applyConfidenceColor(confidenceScore);
-
-                String descLower = formattedDescription.toLowerCase(Locale.ROOT);
-                String nameLower = commonName.toLowerCase(Locale.ROOT);
-
-                boolean isNonPlant =
-                        descLower.contains("not a plant") ||
-                                descLower.contains("no plant") ||
-                                descLower.contains("does not appear to be a plant") ||
-                                descLower.contains("this image does not show a plant") ||
-                                commonName.equalsIgnoreCase("unknown plant");
-
-                boolean mentionsNonToxic =
-                        descLower.contains("non-toxic") ||
-                                descLower.contains("non toxic") ||
-                                descLower.contains("not toxic") ||
-                                descLower.contains("rarely toxic") ||
-                                descLower.contains("generally safe") ||
-                                descLower.contains("safe to handle") ||
-                                descLower.contains("safe if touched");
-
-                boolean isToxic = false;
-                if (!mentionsNonToxic) {
-                    Pattern toxicPattern = Pattern.compile(
-                            "\\b(is|are|can be|may be|considered|generally|often)\\s+(highly\\s+)?(toxic|poisonous|venomous)\\b",
-                            Pattern.CASE_INSENSITIVE
-                    );
-                    Matcher toxMatcher = toxicPattern.matcher(formattedDescription);
-                    if (toxMatcher.find()) {
-                        isToxic = true;
-                    }
+            stopLoadingDots();
 
-                    if (!isToxic) {
-                        String dl = descLower;
-                        if (dl.contains("highly toxic plant") ||
-                                dl.contains("poisonous plant") ||
-                                dl.contains("toxic plant") ||
-                                dl.contains("causes severe poisoning") ||
-                                dl.contains("can cause poisoning if ingested")) {
-                            isToxic = true;
-                        }
-                    }
-                }
+            commonNameTv.setText(commonName);
+            scientificNameTv.setText(scientificName);
+            descriptionTv.setText(formattedDescription);
 
-                IdentificationResult result;
-                if (isNonPlant) {
-                    result = IdentificationResult.UNKNOWN;
-                } else if (isToxic) {
-                    result = IdentificationResult.WARNING;
-                } else if (confidenceScore >= 80) {
-                    result = IdentificationResult.IDENTIFIED_OK;
-                } else {
-                    result = IdentificationResult.UNKNOWN;
-                }
+            confidenceTv.setVisibility(View.VISIBLE);
+            confidenceBar.setVisibility(View.VISIBLE);
+            confidenceBar.setProgress(confidenceScore);
+            confidenceTv.setText("Confidence: " + confidenceScore + "%");
+            applyConfidenceColor(confidenceScore);
 
-                onIdentificationFinished(result);
+            onIdentificationFinished(verdict);
 
-                enableButton(backBtn);
-                enableButton(takeAnotherBtn);
-            });
+            enableButton(backBtn);
+            enableButton(takeAnotherBtn);
 
+            resultReady = true;
             saveCaptureMetadataIfNeeded();
-        }
+            keepForSyncIfNeeded(false);
+        });
+    }
+
+    //keep a capture whose upload failed on the phone, the outbox sync saves it once the upload can go through
+    //waits for the identification, which is in IdentificationCache by then, so the sync only has to upload
+    //force keeps it without the identification, when the screen closes before it finished
+    private void keepForSyncIfNeeded(boolean force) {
+        if (!uploadFailed || keptForSync || capture == null) return;
+        if (!resultReady && !force) return;
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return;
+        keptForSync = true;
+
+        Context app = getApplicationContext();
+        CaptureOutbox.addAsync(app, capture.jpeg, user.getUid(), userRole, capturedAt)
+                .addOnSuccessListener(entry -> Toast.makeText(app,
+                        "Upload failed, the capture will be saved once you're back online",
+                        Toast.LENGTH_LONG).show())
+                .addOnFailureListener(e -> Toast.makeText(app,
+                        "Upload failed and the capture could not be kept: " + e.getMessage(),
+                        Toast.LENGTH_LONG).show());
     }
 
     //set colour of confidence meter based on confidence
@@ -489,30 +348,23 @@ public class DescriptionActivity extends AppCompatActivity {
 
     //save the capture metadata to firebase
     private void saveCaptureMetadataIfNeeded() {
+        //needs both the identification and the uploaded image url
+        if (!resultReady || imageUrl == null) return;
         if (savedOnce.getAndSet(true)) return;
+        CaptureStore.remove(captureId);
         if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
         String uid = FirebaseAuth.getInstance().getCurrentUser().getUid();
 
-        Map<String, Object> data = new HashMap<>();
-        data.put("url", imageUrl);
-        data.put("role", userRole);
-        data.put("timestamp", System.currentTimeMillis());
-        data.put("commonName", commonName);
-        data.put("scientificName", scientificName);
-
         // save the final formatted description (with alternates) if available
         String toSaveDesc = finalDescriptionText != null && !finalDescriptionText.isEmpty()
                 ? finalDescriptionText
                 : descriptionText;
-        data.put("description", toSaveDesc);
 
-        data.put("confidence", confidenceScore);
+        Map<String, Object> data = CaptureRepository.buildCapture(
+                imageUrl, thumbUrl, userRole, commonName, scientificName, toSaveDesc, confidenceScore, capturedAt);
+        if (identification != null) CaptureRepository.addIdentification(data, userRole, identification);
 
-        FirebaseFirestore.getInstance()
-                .collection("users")
-                .document(uid)
-                .collection("captures")
-                .add(data)
+        CaptureRepository.saveCapture(uid, data)
                 .addOnFailureListener(e ->
                         Toast.makeText(this, "Failed to save history: " + e.getMessage(), Toast.LENGTH_SHORT).show());
     }
@@ -572,12 +424,19 @@ public class DescriptionActivity extends AppCompatActivity {
     }
 
     //handle overlay once plant is identified
-    private void onIdentificationFinished(IdentificationResult result) {
+    private void onIdentificationFinished(IdentificationClassifier.Verdict result) {
         if (identificationOverlay == null) return;
 
         stopLogoPulse();
 
-        if (result == IdentificationResult.IDENTIFIED_OK) {
+        //overlay was already hidden by streamed text, bring it back to show the result
+        if (firstTextShown) {
+            identificationOverlay.animate().cancel();
+            identificationOverlay.setAlpha(1f);
+            identificationOverlay.setVisibility(View.VISIBLE);
+        }
+
+        if (result == IdentificationClassifier.Verdict.IDENTIFIED_OK) {
             if (overlayStatusText != null) {
                 overlayStatusText.setText("Plant identified!");
             }
@@ -593,7 +452,7 @@ public class DescriptionActivity extends AppCompatActivity {
         int tintColor;
         String statusText;
 
-        if (result == IdentificationResult.WARNING) {
+        if (result == IdentificationClassifier.Verdict.WARNING) {
             iconRes = android.R.drawable.ic_dialog_alert;
             tintColor = 0xFFF44336;
             statusText = "Toxic plant detected";
@@ -687,17 +546,6 @@ public class DescriptionActivity extends AppCompatActivity {
                 .start();
     }
 
-    //extract the first 3 digits from a string
-    private int extractFirstInt(String s) {
-        if (s == null) return 0;
-        Matcher m = Pattern.compile("(\\d{1,3})").matcher(s);
-        if (m.find()) {
-            try { return Integer.parseInt(m.group(1)); } catch (Exception ignored) {}
-        }
-        return 0;
-    }
-    private int clamp0to100(int v) { return Math.max(0, Math.min(100, v)); }
-
     //loading dots animation
     private void startLoadingDots(TextView target, String base) {
         if (target == null || loading) return;
@@ -724,116 +572,19 @@ public class DescriptionActivity extends AppCompatActivity {
     private void disableButton(View btn) { if (btn != null) { btn.setEnabled(false); btn.setAlpha(0.5f); } }
     private void enableButton(View btn)  { if (btn != null) { btn.setEnabled(true);  btn.setAlpha(1f);   } }
 
-    //cleans the text but preserves dashes
-    private String sanitizePlainTextKeepDashes(String s) {
-        if (s == null) return "";
-        s = stripThoughtPreamble(s);
-        s = hardStripMetaLabels(s);
-        s = stripInstructionEcho(s);
-        s = s.replaceAll("[*_`~]", "");
-        s = s.replaceAll("^\"+|\"+$", "");
-        s = s.replaceAll("\\s+", " ").trim();
-        return s;
-    }
-
-    //converts text to formatted points
-    private String formatPoints(String text) {
-        if (text == null) return "";
-        String formatted = text.replaceAll("\\s*>\\s*", "\n\n");
-        return formatted.trim();
-    }
-
-    //cleans up plain text
-    private String sanitizePlainText(String s) {
-        if (s == null) return "";
-        s = stripThoughtPreamble(s);
-        s = hardStripMetaLabels(s);
-        s = stripInstructionEcho(s);
-        s = s.replaceAll("[*_`~]", "");
-        s = s.replaceAll("^\"+|\"+$", "");
-        s = s.replaceAll("\\s+", " ").trim();
-        return s;
-    }
-
-    //extracts and cleans the scientific name
-    private String cleanScientificName(String raw) {
-        if (raw == null) return "";
-        String s = sanitizePlainText(raw);
-        s = s.replaceAll("\\.$", "");
-        Pattern p = Pattern.compile("([A-Z][a-z]+\\s+[a-z]+(?:\\s+[a-z]+)?)");
-        Matcher m = p.matcher(s);
-        if (m.find()) return m.group(1);
-        return s.split("\\R", 2)[0].trim();
-    }
-
-    //extracts and cleans the common name
-    private String cleanCommonName(String raw) {
-        if (raw == null) return "";
-        String s = sanitizePlainText(raw);
-        s = s.replaceAll("\\.$", "");
-        String first = "";
-        for (String line : s.split("\\R")) {
-            String ln = line.trim();
-            if (ln.isEmpty()) continue;
-            if (ln.matches("(?is)^(THOUGHTS?|THOUGHT|ANALYSIS|REASONING|THINKING|PLAN|REFLECTION)\\s*:.*")) continue;
-            first = ln; break;
-        }
-        if (first.isEmpty()) first = s.split("\\R",2)[0].trim();
-        if (startsWithLeak(first)) first = "Unknown plant";
-        return first.length() > 40 ? first.substring(0, 40) + "…" : first;
-    }
-
-    //parse common name JSON from model
-    private String parseCommonNameJson(String raw) {
-        try {
-            String json = raw.replaceAll("```(?:json)?", "").replace("```", "").trim();
-            JSONObject o = new JSONObject(json);
-            String cn = o.optString("common_name", "").trim();
-            return cleanCommonName(cn);
-        } catch (Exception e) {
-            return "";
-        }
-    }
-
-    //parse a list of possible alternates
-    private void parseAlternatesJson(String raw) {
-        alternates.clear();
-        try {
-            String json = raw.replaceAll("```(?:json)?", "").replace("```", "").trim();
-            JSONArray arr = new JSONArray(json);
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject o = arr.getJSONObject(i);
-                String cn = cleanCommonName(sanitizePlainText(o.optString("common_name","")));
-                String sn = cleanScientificName(sanitizePlainText(o.optString("scientific_name","")));
-                int k = clamp0to100(o.optInt("confidence", 0));
-                if (!cn.isEmpty() || !sn.isEmpty()) {
-                    alternates.add(new Candidate(cn, sn, k));
-                }
-            }
-            Collections.sort(alternates, (a, b) -> Integer.compare(b.confidence, a.confidence));
-            if (alternates.size() > 3) alternates.subList(3, alternates.size()).clear();
-        } catch (Exception ignored) {}
-    }
-
-    //build a sentence that lists 3 alternate candidates
-    private String buildAlternatesSentence(List<Candidate> items) {
-        List<String> names = new ArrayList<>();
-        for (Candidate c : items) {
-            String name = (c.commonName != null && !c.commonName.isEmpty())
-                    ? c.commonName
-                    : (c.scientificName != null ? c.scientificName : "");
-            if (!name.isEmpty()) names.add(name);
-        }
-        if (names.isEmpty()) return "";
-        if (names.size() == 1) return "It could also be: " + names.get(0) + ".";
-        if (names.size() == 2) return "It could also be: " + names.get(0) + " or " + names.get(1) + ".";
-        return "It could also be: " + names.get(0) + ", " + names.get(1) + " or " + names.get(2) + ".";
-    }
-
     @Override protected void onPause() { super.onPause(); stopLoadingDots(); }
 
     @Override
     protected void onDestroy() {
+        keepForSyncIfNeeded(true);
+        //the capture bitmap is only shown here, hand it back once the view lets go of it
+        //released on io so it waits for runGemini, which may still be hashing the same bitmap
+        if (plantImageView != null) plantImageView.setImageDrawable(null);
+        io.execute(() -> {
+            BitmapDecoder.release(imageBitmap);
+            imageBitmap = null;
+        });
+        io.shutdown();
         stopLoadingDots();
         stopLogoPulse();
         super.onDestroy();
@@ -0,0 +1,114 @@
+package com.example.plantapp;
+
+import android.net.Network;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+//http client for the ESP32 camera, one pooled okhttp client per ESP network
+//keeps the connection to 192.168.4.1 alive between captures and reads each jpeg straight into a right sized buffer
+final class EspCameraClient {
+
+    static final String BASE_URL = "http://192.168.4.1";
+    static final String STREAM_URL = BASE_URL + ":81/stream";
+
+    static final long DEFAULT_CONNECT_TIMEOUT_MS = 5_000L;
+    static final long DEFAULT_READ_TIMEOUT_MS = 10_000L;
+    static final int DEFAULT_MAX_ATTEMPTS = 3;
+    static final long DEFAULT_BACKOFF_MS = 250L;
+
+    //the preview gets a frame several times a second, a gap this long means the stream stalled
+    static final long STREAM_STALL_TIMEOUT_MS = 3_000L;
+
+    //a frame bigger than this is not a camera jpeg
+    private static final long MAX_BODY_BYTES = 8L * 1024L * 1024L;
+
+    private static EspCameraClient shared;
+    private static Network sharedNetwork;
+
+    private final OkHttpClient client;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    EspCameraClient(Network network, long connectTimeoutMs, long readTimeoutMs, int maxAttempts, long backoffMs) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(2, 5, TimeUnit.MINUTES))
+                .retryOnConnectionFailure(true);
+        //only these sockets go over the ESP network, everything else keeps the default network
+        if (network != null) builder.socketFactory(network.getSocketFactory());
+
+        this.client = builder.build();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+    }
+
+    //the shared client for this network with default timeouts, null network uses the process default
+    static synchronized EspCameraClient forNetwork(Network network) {
+        if (shared == null || !sameNetwork(network, sharedNetwork)) {
+            shared = new EspCameraClient(network, DEFAULT_CONNECT_TIMEOUT_MS, DEFAULT_READ_TIMEOUT_MS,
+                    DEFAULT_MAX_ATTEMPTS, DEFAULT_BACKOFF_MS);
+            sharedNetwork = network;
+        }
+        return shared;
+    }
+
+    private static boolean sameNetwork(Network a, Network b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    //client for the long running preview stream, shares this client's connection pool and socket factory
+    //a stalled stream times out quickly so MjpegPreview reconnects, it does its own retrying
+    OkHttpClient streamClient() {
+        return client.newBuilder()
+                .readTimeout(STREAM_STALL_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+
+    //one jpeg from the capture endpoint, must not be called on the main thread
+    byte[] capture() throws IOException {
+        return get(BASE_URL + "/capture");
+    }
+
+    //GET with retry, waits backoffMs, 2x, 4x ... between attempts
+    byte[] get(String url) throws IOException {
+        Request request = new Request.Builder().url(url).build();
+        IOException last = null;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            if (attempt > 0) SystemClock.sleep(backoffMs << (attempt - 1));
+            try {
+                return fetch(request);
+            } catch (IOException e) {
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    private byte[] fetch(Request request) throws IOException {
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code());
+            }
+
+            //the ESP sends Content-Length, read straight into an array of that size without an intermediate copy
+            long length = body.contentLength();
+            if (length > MAX_BODY_BYTES) throw new IOException("Response too large: " + length);
+            if (length < 0) return body.bytes();
+
+            byte[] out = new byte[(int) length];
+            body.source().readFully(out);
+            return out;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.plantapp;
+
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkRequest;
+
+//process-wide request for the ESP32 access point
+//kept across camera screens so back-to-back captures don't have to reconnect each time
+final class EspLink {
+
+    //forwarded network events, called on a connectivity thread
+    interface Listener {
+        void onAvailable(Network network);
+        void onUnavailable();
+    }
+
+    private static ConnectivityManager connectivityManager;
+    private static ConnectivityManager.NetworkCallback callback;
+    private static volatile Network network;
+    private static volatile Listener listener;
+
+    private EspLink() {}
+
+    //the connected ESP network, null if not connected
+    static Network getNetwork() {
+        return network;
+    }
+
+    //the screen that wants network events, null to stop receiving them
+    static void setListener(Listener l) {
+        listener = l;
+    }
+
+    //request the ESP network, any previous request is released first
+    static synchronized void connect(ConnectivityManager cm, NetworkRequest request, Listener l) {
+        release();
+        connectivityManager = cm;
+        listener = l;
+        callback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network n) {
+                network = n;
+                Listener current = listener;
+                if (current != null) current.onAvailable(n);
+            }
+
+            @Override
+            public void onLost(Network n) {
+                if (n.equals(network)) network = null;
+            }
+
+            @Override
+            public void onUnavailable() {
+                network = null;
+                Listener current = listener;
+                if (current != null) current.onUnavailable();
+            }
+        };
+        cm.requestNetwork(request, callback);
+    }
+
+    //drop the ESP network, only the camera client's sockets ever used it so there is nothing to unbind
+    static synchronized void release() {
+        try {
+            if (connectivityManager != null && callback != null) {
+                connectivityManager.unregisterNetworkCallback(callback);
+            }
+        } catch (Exception ignored) {
+        }
+        callback = null;
+        network = null;
+        listener = null;
+    }
+}
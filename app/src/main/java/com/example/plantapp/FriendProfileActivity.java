@@ -2,13 +2,9 @@ package com.example.plantapp;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.view.LayoutInflater;
 import android.view.View;
-import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.ImageButton;
-import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -18,6 +14,8 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
@@ -25,13 +23,8 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 public class FriendProfileActivity extends AppCompatActivity {
 
@@ -40,12 +33,13 @@ public class FriendProfileActivity extends AppCompatActivity {
     private TextView friendRankTv;
     private ProgressBar friendRankBar;
     private TextView friendHistoryTitleTv;
-    private ListView friendHistoryListView;
+    private RecyclerView friendHistoryRecyclerView;
     private ImageButton backBtn;
     private Button removeFriendBtn;
 
-    private final List<PlantCapture> friendHistoryItems = new ArrayList<>();
-    private FriendHistoryAdapter friendHistoryAdapter;
+    //friend's history, loaded a page at a time
+    private CaptureHistoryAdapter friendHistoryAdapter;
+    private CaptureHistoryPager friendHistoryPager;
 
     private String friendUid;
     private String friendUsername;
@@ -79,7 +73,7 @@ public class FriendProfileActivity extends AppCompatActivity {
         friendRankTv         = findViewById(R.id.FriendPlantRankingText);
         friendRankBar        = findViewById(R.id.FriendRankProgressBar);
         friendHistoryTitleTv = findViewById(R.id.FriendHistoryTitle);
-        friendHistoryListView = findViewById(R.id.FriendHistoryListView);
+        friendHistoryRecyclerView = findViewById(R.id.FriendHistoryListView);
         removeFriendBtn      = findViewById(R.id.RemoveFriendButton);
 
         if (friendUsername != null && !friendUsername.isEmpty()) {
@@ -90,63 +84,82 @@ public class FriendProfileActivity extends AppCompatActivity {
 
         removeFriendBtn.setOnClickListener(v -> removeFriend());
 
-        friendHistoryAdapter = new FriendHistoryAdapter(friendHistoryItems);
-        friendHistoryListView.setAdapter(friendHistoryAdapter);
+        setupFriendHistoryList();
 
         loadFriendHistory();
     }
 
-    //query firestore for friends plant history
-    private void loadFriendHistory() {
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
+    //recycled, paged list of the friend's captures
+    private void setupFriendHistoryList() {
+        friendHistoryRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        friendHistoryRecyclerView.addItemDecoration(CaptureHistoryAdapter.divider(this));
+
+        int thumbSizePx = Math.round(48 * getResources().getDisplayMetrics().density);
+        friendHistoryAdapter = new CaptureHistoryAdapter(ThumbnailCache.get(this), thumbSizePx, this::openHistoryItem);
+        friendHistoryRecyclerView.setAdapter(friendHistoryAdapter);
+
+        friendHistoryPager = new CaptureHistoryPager(new CaptureHistoryPager.Listener() {
+            @Override
+            public void onItems(List<CaptureHistoryItem> items, boolean endReached) {
+                friendHistoryAdapter.submitList(items);
+            }
 
-        db.collection("users")
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(FriendProfileActivity.this, "Failed to load friend history: " + e.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+        friendHistoryPager.attachTo(friendHistoryRecyclerView);
+    }
+
+    //open one of the friend's captures, read only
+    private void openHistoryItem(CaptureHistoryItem item) {
+        Intent intent = new Intent(FriendProfileActivity.this, HistoryDescriptionActivity.class);
+        intent.putExtra("docId", item.docId);
+        intent.putExtra("userRole", item.role);
+        intent.putExtra("imageUrl", item.imageUrl);
+        intent.putExtra("thumbUrl", item.thumbUrl);
+        intent.putExtra("commonName", item.commonName);
+        intent.putExtra("scientificName", item.scientificName);
+        intent.putExtra("description", item.description);
+        intent.putExtra("confidence", item.confidence);
+        intent.putExtra("dateTime", item.dateTime);
+        intent.putExtra("ownerUid", friendUid);
+        intent.putExtra("allowDelete", false);
+        startActivity(intent);
+    }
+
+    //read the friend's user document for the count, then the first page of their plant history
+    //the rest of the history loads as the list scrolls
+    private void loadFriendHistory() {
+        FirebaseFirestore.getInstance()
+                .collection("users")
                 .document(friendUid)
-                .collection("captures")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
                 .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    friendHistoryItems.clear();
-
-                    int count = 0;
-                    for (QueryDocumentSnapshot doc : querySnapshot) {
-                        String docId = doc.getId();
-                        String imageUrl = doc.getString("url");
-                        String role = doc.getString("role");
-                        String commonName = doc.getString("commonName");
-                        String dateTime = doc.getString("dateTime");
-                        String scientificName = doc.getString("scientificName");
-                        String description = doc.getString("description");
-                        Long confLong = doc.getLong("confidence");
-                        int confidence = confLong != null ? confLong.intValue() : 0;
-                        Long tsLong = doc.getLong("timestamp");
-                        long timestamp = tsLong != null ? tsLong : 0L;
-
-                        if (imageUrl == null) continue;
-
-                        PlantCapture item = new PlantCapture(
-                                docId,
-                                imageUrl,
-                                role != null ? role : "Hiker",
-                                commonName,
-                                dateTime,
-                                scientificName,
-                                description,
-                                confidence,
-                                timestamp
-                        );
-                        friendHistoryItems.add(item);
-                        count++;
-                    }
-
-                    friendHistoryAdapter.notifyDataSetChanged();
-                    updateFriendStats(count);
+                .addOnSuccessListener(doc -> {
+                    long count = CaptureRepository.captureCountOf(doc);
+                    if (count >= 0) updateFriendStats((int) count);
+                    else countFriendCaptures();
+
+                    //summaries if the friend has them, their full captures otherwise
+                    friendHistoryPager.refresh(CaptureRepository.listCollection(doc)
+                            .orderBy("timestamp", Query.Direction.DESCENDING));
                 })
                 .addOnFailureListener(e ->
                         Toast.makeText(this, "Failed to load friend history: " + e.getMessage(),
                                 Toast.LENGTH_SHORT).show());
     }
 
+    //friend hasn't opened the app since the count was added, count on the server instead
+    private void countFriendCaptures() {
+        CaptureRepository.countCaptures(friendUid)
+                .addOnSuccessListener(count -> updateFriendStats(count.intValue()))
+                .addOnFailureListener(e ->
+                        Toast.makeText(this, "Failed to load friend history: " + e.getMessage(),
+                                Toast.LENGTH_SHORT).show());
+    }
+
     //shows the number of plants friend has
     private void updateFriendStats(int count) {
         friendCounterTv.setText("They've identified " + count + " plants!");
@@ -216,104 +229,4 @@ public class FriendProfileActivity extends AppCompatActivity {
                             Toast.LENGTH_SHORT).show();
                 });
     }
-
-    //class for a plant in history
-    private static class PlantCapture {
-        final String docId;
-        final String imageUrl;
-        final String role;
-        final String commonName;
-        final String dateTime;
-        final String scientificName;
-        final String description;
-        final int confidence;
-        final long timestamp;
-
-        PlantCapture(String docId,
-                     String imageUrl,
-                     String role,
-                     String commonName,
-                     String dateTime,
-                     String scientificName,
-                     String description,
-                     int confidence,
-                     long timestamp) {
-            this.docId = docId;
-            this.imageUrl = imageUrl;
-            this.role = role;
-            this.commonName = commonName;
-            this.dateTime = dateTime;
-            this.scientificName = scientificName;
-            this.description = description;
-            this.confidence = confidence;
-            this.timestamp = timestamp;
-        }
-    }
-
-    //adapter for displaying friends capture history
-    private class FriendHistoryAdapter extends ArrayAdapter<PlantCapture> {
-
-        private final LayoutInflater inflater = LayoutInflater.from(FriendProfileActivity.this);
-        private final SimpleDateFormat sdf =
-                new SimpleDateFormat("yyyy/MM/dd HH:mm", Locale.getDefault());
-
-        FriendHistoryAdapter(List<PlantCapture> items) {
-            super(FriendProfileActivity.this, 0, items);
-        }
-
-        @Override
-        public View getView(int position, View convertView, ViewGroup parent) {
-            View row = convertView;
-            if (row == null) {
-                row = inflater.inflate(R.layout.item_history_capture, parent, false);
-            }
-
-            TextView titleTv = row.findViewById(R.id.historyTitle);
-            TextView dateTv  = row.findViewById(R.id.historyDate);
-
-            PlantCapture item = getItem(position);
-            if (item != null) {
-                String name = (item.commonName != null && !item.commonName.isEmpty())
-                        ? item.commonName
-                        : "Unknown Plant";
-                String role = (item.role != null && !item.role.isEmpty())
-                        ? item.role
-                        : "Unknown Role";
-
-                titleTv.setText(name + " · " + role);
-
-                dateTv.setText(formatDate(item));
-
-                row.setOnClickListener(v -> {
-                    Intent intent = new Intent(FriendProfileActivity.this, HistoryDescriptionActivity.class);
-                    intent.putExtra("docId", item.docId);
-                    intent.putExtra("userRole", item.role);
-                    intent.putExtra("imageUrl", item.imageUrl);
-                    intent.putExtra("commonName", item.commonName);
-                    intent.putExtra("scientificName", item.scientificName);
-                    intent.putExtra("description", item.description);
-                    intent.putExtra("confidence", item.confidence);
-                    intent.putExtra("dateTime", item.dateTime);
-                    intent.putExtra("allowDelete", false);
-                    startActivity(intent);
-                });
-
-            }
-
-            return row;
-        }
-
-        //format date and time for the capture
-        private String formatDate(PlantCapture item) {
-            if (item == null) return "";
-            if (item.timestamp > 0L) {
-                Date d = new Date(item.timestamp);
-                return sdf.format(d);
-            }
-            if (item.dateTime != null && !item.dateTime.isEmpty()) {
-                return item.dateTime;
-            }
-            return "";
-        }
-    }
 }
@@ -0,0 +1,170 @@
+package com.example.plantapp;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+//adapter for the "My Garden" strip, diffed by firestore doc id so a resume only rebinds what changed
+class GardenAdapter extends ListAdapter<GardenAdapter.GardenItem, GardenAdapter.TileHolder> {
+
+    //a capture shown in the garden
+    static final class GardenItem {
+        final String docId;
+        final String imageUrl;
+        final String thumbUrl;
+        final String role;
+        final String commonName;
+        final String scientificName;
+        final String description;
+        final int confidence;
+        final String dateTime;
+
+        GardenItem(String docId,
+                   String imageUrl,
+                   String thumbUrl,
+                   String role,
+                   String commonName,
+                   String scientificName,
+                   String description,
+                   int confidence,
+                   String dateTime) {
+            this.docId = docId;
+            this.imageUrl = imageUrl;
+            this.thumbUrl = thumbUrl;
+            this.role = role;
+            this.commonName = commonName;
+            this.scientificName = scientificName;
+            this.description = description;
+            this.confidence = confidence;
+            this.dateTime = dateTime;
+        }
+
+        //older captures have no thumbnail, those fall back to the full image
+        String tileUrl() {
+            return (thumbUrl != null && !thumbUrl.isEmpty()) ? thumbUrl : imageUrl;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof GardenItem)) return false;
+            GardenItem other = (GardenItem) o;
+            return confidence == other.confidence
+                    && Objects.equals(docId, other.docId)
+                    && Objects.equals(imageUrl, other.imageUrl)
+                    && Objects.equals(thumbUrl, other.thumbUrl)
+                    && Objects.equals(role, other.role)
+                    && Objects.equals(commonName, other.commonName)
+                    && Objects.equals(scientificName, other.scientificName)
+                    && Objects.equals(description, other.description)
+                    && Objects.equals(dateTime, other.dateTime);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(docId, imageUrl, thumbUrl, confidence);
+        }
+    }
+
+    interface OnItemClickListener {
+        void onItemClick(GardenItem item);
+    }
+
+    private static final DiffUtil.ItemCallback<GardenItem> DIFF = new DiffUtil.ItemCallback<GardenItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull GardenItem a, @NonNull GardenItem b) {
+            return a.docId.equals(b.docId);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull GardenItem a, @NonNull GardenItem b) {
+            return a.equals(b);
+        }
+    };
+
+    private final ThumbnailCache thumbnails;
+    private final int tileSizePx;
+    private final OnItemClickListener listener;
+
+    //stable ids handed out per doc id, unique for the life of the adapter
+    private final Map<String, Long> stableIds = new HashMap<>();
+
+    GardenAdapter(ThumbnailCache thumbnails, int tileSizePx, OnItemClickListener listener) {
+        super(DIFF);
+        this.thumbnails = thumbnails;
+        this.tileSizePx = tileSizePx;
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String docId = getItem(position).docId;
+        Long id = stableIds.get(docId);
+        if (id == null) {
+            id = (long) stableIds.size();
+            stableIds.put(docId, id);
+        }
+        return id;
+    }
+
+    @NonNull
+    @Override
+    public TileHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View tile = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_garden_tile, parent, false);
+        return new TileHolder(tile);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull TileHolder holder, int position) {
+        GardenItem item = getItem(position);
+        holder.itemView.setOnClickListener(v -> listener.onItemClick(item));
+
+        //same image as before, keep what is on screen
+        String url = item.tileUrl();
+        if (url.equals(holder.boundUrl)) return;
+
+        holder.cancelLoad();
+        holder.image.setImageDrawable(null);
+        holder.boundUrl = url;
+        holder.request = thumbnails.load(url, tileSizePx, holder.image::setImageBitmap);
+    }
+
+    //the tile went off screen, stop its download and let go of the bitmap
+    @Override
+    public void onViewRecycled(@NonNull TileHolder holder) {
+        holder.cancelLoad();
+        holder.image.setImageDrawable(null);
+        holder.boundUrl = null;
+    }
+
+    static final class TileHolder extends RecyclerView.ViewHolder {
+        final ImageView image;
+        ThumbnailCache.Request request;
+        String boundUrl;
+
+        TileHolder(View itemView) {
+            super(itemView);
+            image = itemView.findViewById(R.id.gardenTileImage);
+            image.setClipToOutline(true);
+        }
+
+        void cancelLoad() {
+            if (request != null) {
+                request.cancel();
+                request = null;
+            }
+        }
+    }
+}
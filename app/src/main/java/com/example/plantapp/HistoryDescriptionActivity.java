@@ -2,7 +2,6 @@ package com.example.plantapp;
 
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
@@ -19,11 +18,16 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 //shows details of past capture
 public class HistoryDescriptionActivity extends AppCompatActivity {
 
@@ -38,8 +42,18 @@ public class HistoryDescriptionActivity extends AppCompatActivity {
     private Button deleteFromHistoryBtn;
 
     private String docId;
+    private String ownerUid;
+    //role of whoever is looking, the description is shown for this role when it differs from the capture's
+    private String viewerRole;
+    private Task<byte[]> imageBytes;
+    private boolean roleDescriptionShown = false;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
     private String userRole;
     private String imageUrl;
+    private String thumbUrl;
+    private ThumbnailCache.Request thumbRequest;
+    private boolean fullImageShown = false;
+    private Bitmap fullImage;
     private String commonName;
     private String scientificName;
     private String description;
@@ -47,6 +61,9 @@ public class HistoryDescriptionActivity extends AppCompatActivity {
     private String dateTime;
     private boolean allowDelete;
 
+    //result extra naming the capture that was deleted here
+    static final String EXTRA_DELETED_DOC_ID = "deletedDocId";
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -72,8 +89,11 @@ public class HistoryDescriptionActivity extends AppCompatActivity {
         //read capture details from intent extras
         Intent intent = getIntent();
         docId          = intent.getStringExtra("docId");
+        ownerUid       = intent.getStringExtra("ownerUid");
+        viewerRole     = intent.getStringExtra("viewerRole");
         userRole       = intent.getStringExtra("userRole");
         imageUrl       = intent.getStringExtra("imageUrl");
+        thumbUrl       = intent.getStringExtra("thumbUrl");
         commonName     = intent.getStringExtra("commonName");
         scientificName = intent.getStringExtra("scientificName");
         description    = intent.getStringExtra("description");
@@ -87,20 +107,22 @@ public class HistoryDescriptionActivity extends AppCompatActivity {
         }
 
         //set title at top
-        if (plantTitleTv != null) {
-            if (dateTime != null && !dateTime.isEmpty()) {
-                plantTitleTv.setText("Previous Capture\n" + dateTime + " · " + userRole);
-            } else {
-                plantTitleTv.setText("Previous Capture\n" + userRole);
-            }
-        }
+        showTitle(userRole);
 
         //populate text fields with data
         commonNameTv.setText(
                 (commonName != null && !commonName.isEmpty()) ? commonName : "Unknown plant"
         );
         scientificNameTv.setText(scientificName != null ? scientificName : "");
-        descriptionTv.setText(description != null ? description : "No description available.");
+        if (description != null) {
+            descriptionTv.setText(description);
+        } else if (ownerUid != null && docId != null && !docId.isEmpty()) {
+            //opened from a list summary, the description is only in the full capture
+            descriptionTv.setText("Loading description...");
+            loadDescription();
+        } else {
+            descriptionTv.setText("No description available.");
+        }
 
         //confidence bar
         confidenceBar.setMax(100);
@@ -108,20 +130,32 @@ public class HistoryDescriptionActivity extends AppCompatActivity {
         confidenceTv.setText("Confidence: " + confidence + "%");
         applyConfidenceColor(confidence);
 
+        //show the cached thumbnail right away, the full image replaces it once downloaded
+        if (thumbUrl != null && !thumbUrl.trim().isEmpty()) {
+            thumbRequest = ThumbnailCache.get(this).load(thumbUrl, CaptureRepository.THUMB_EDGE_PX, bmp -> {
+                if (!fullImageShown) plantImageView.setImageBitmap(bmp);
+            });
+        }
+
         //load image from firestore
         if (imageUrl != null && !imageUrl.trim().isEmpty()) {
             try {
                 StorageReference ref = FirebaseStorage.getInstance().getReferenceFromUrl(imageUrl);
                 final long MAX = 8L * 1024L * 1024L;
-                ref.getBytes(MAX)
-                        .addOnSuccessListener(bytes -> {
-                            Bitmap bmp = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-                            if (bmp != null) {
+                imageBytes = ref.getBytes(MAX);
+                imageBytes
+                        .addOnSuccessListener(bytes -> BitmapDecoder.decodeAsync(bytes,
+                                imageTargetWidth(), imageTargetHeight(), bmp -> {
+                            if (isDestroyed()) {
+                                BitmapDecoder.release(bmp);
+                            } else if (bmp != null) {
+                                fullImageShown = true;
+                                fullImage = bmp;
                                 plantImageView.setImageBitmap(bmp);
                             } else {
                                 Toast.makeText(this, "Failed to decode image", Toast.LENGTH_SHORT).show();
                             }
-                        })
+                        }))
                         .addOnFailureListener(e ->
                                 Toast.makeText(this, "Failed to load image: " + e.getMessage(), Toast.LENGTH_SHORT).show());
             } catch (Exception e) {
@@ -129,6 +163,9 @@ public class HistoryDescriptionActivity extends AppCompatActivity {
             }
         }
 
+        //the description for the viewer's role, read from the capture or generated once
+        resolveViewerRole();
+
         backBtn.setOnClickListener(v -> finish());
 
         if (!allowDelete || docId == null || docId.isEmpty()) {
@@ -139,6 +176,147 @@ public class HistoryDescriptionActivity extends AppCompatActivity {
         }
     }
 
+    private void showTitle(String role) {
+        if (plantTitleTv == null) return;
+        if (dateTime != null && !dateTime.isEmpty()) {
+            plantTitleTv.setText("Previous Capture\n" + dateTime + " · " + role);
+        } else {
+            plantTitleTv.setText("Previous Capture\n" + role);
+        }
+    }
+
+    //the viewer's role comes with the intent from the home screen, otherwise from their user document
+    private void resolveViewerRole() {
+        if (ownerUid == null || docId == null || docId.isEmpty()) return;
+        if (viewerRole != null && !viewerRole.isEmpty()) {
+            showRoleDescription();
+            return;
+        }
+        if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
+
+        FirebaseFirestore.getInstance()
+                .collection("users")
+                .document(FirebaseAuth.getInstance().getCurrentUser().getUid())
+                .get()
+                .addOnSuccessListener(doc -> {
+                    if (isDestroyed()) return;
+                    String role = doc.exists() ? doc.getString("role") : null;
+                    viewerRole = (role == null || role.trim().isEmpty()) ? "Hiker" : role;
+                    showRoleDescription();
+                });
+    }
+
+    //the capture's own role is already shown, another role reads its stored description or generates it
+    private void showRoleDescription() {
+        if (viewerRole.equalsIgnoreCase(userRole)) return;
+
+        CaptureRepository.loadCapture(ownerUid, docId)
+                .addOnSuccessListener(doc -> {
+                    if (isDestroyed() || !doc.exists()) return;
+                    PlantIdentification stored = CaptureRepository.identificationOf(doc, viewerRole);
+                    if (!stored.description.isEmpty()) {
+                        showIdentification(viewerRole, stored);
+                    } else {
+                        generateRoleDescription(stored);
+                    }
+                });
+    }
+
+    //one description request on the stored image, the plant is not identified again
+    private void generateRoleDescription(PlantIdentification stored) {
+        if (imageBytes == null) return;
+        String role = viewerRole;
+        CharSequence captureDescription = descriptionTv.getText();
+        descriptionTv.setText("Writing the " + role + " description...");
+
+        imageBytes.addOnSuccessListener(this, bytes -> io.execute(() -> {
+            InferenceImage image = InferenceImage.prepare(bytes);
+            if (image == null) {
+                runOnUiThread(() -> descriptionTv.setText(captureDescription));
+                return;
+            }
+
+            //the same photo may have been described for this role on this phone already
+            IdentificationCache cache = IdentificationCache.get(this);
+            long hash = ImageHash.ofBitmap(image.bitmap);
+            IdentificationCache.Hit hit = cache.lookup(hash, role);
+            if (hit != null && hit.description != null) {
+                BitmapDecoder.release(image.bitmap);
+                onRoleDescription(role, stored, hit.description);
+                return;
+            }
+
+            new PlantIdentifier().describe(image, role, description -> {
+                BitmapDecoder.release(image.bitmap);
+                if (description.isEmpty()) {
+                    runOnUiThread(() -> descriptionTv.setText(captureDescription));
+                    return;
+                }
+                if (hit != null) cache.putDescription(hash, role, description);
+                else cache.put(hash, role, stored.withDescription(description));
+                onRoleDescription(role, stored, description);
+            });
+        })).addOnFailureListener(this, e -> descriptionTv.setText(captureDescription));
+    }
+
+    //show the new description and keep it on the capture if it is the viewer's own
+    private void onRoleDescription(String role, PlantIdentification stored, String description) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user != null && user.getUid().equals(ownerUid)) {
+            CaptureRepository.saveDescription(ownerUid, docId, role, description);
+        }
+        runOnUiThread(() -> {
+            if (!isDestroyed()) showIdentification(role, stored.withDescription(description));
+        });
+    }
+
+    private void showIdentification(String role, PlantIdentification identification) {
+        roleDescriptionShown = true;
+        description = IdentificationParser.formatDescription(identification);
+        descriptionTv.setText(description);
+        showTitle(role);
+    }
+
+    @Override
+    protected void onDestroy() {
+        io.shutdown();
+        if (thumbRequest != null) thumbRequest.cancel();
+        //nothing draws the full image anymore, let the next decode reuse it
+        if (fullImage != null) {
+            plantImageView.setImageDrawable(null);
+            BitmapDecoder.release(fullImage);
+            fullImage = null;
+        }
+        super.onDestroy();
+    }
+
+    //fetch the full capture document for the description
+    private void loadDescription() {
+        CaptureRepository.loadCapture(ownerUid, docId)
+                .addOnSuccessListener(doc -> {
+                    //the viewer's role description may already be showing
+                    if (isDestroyed() || roleDescriptionShown) return;
+                    description = doc.getString("description");
+                    descriptionTv.setText(description != null ? description : "No description available.");
+                })
+                .addOnFailureListener(e -> {
+                    if (isDestroyed()) return;
+                    descriptionTv.setText("No description available.");
+                    Toast.makeText(this, "Failed to load description: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                });
+    }
+
+    //decode size for the full image, the view may not be laid out yet
+    private int imageTargetWidth() {
+        int w = plantImageView.getWidth();
+        return w > 0 ? w : getResources().getDisplayMetrics().widthPixels;
+    }
+
+    private int imageTargetHeight() {
+        int h = plantImageView.getHeight();
+        return h > 0 ? h : 0;
+    }
+
     //confidence meter colour
     private void applyConfidenceColor(int score) {
         int resId;
@@ -167,14 +345,10 @@ public class HistoryDescriptionActivity extends AppCompatActivity {
 
         String uid = FirebaseAuth.getInstance().getCurrentUser().getUid();
 
-        FirebaseFirestore.getInstance()
-                .collection("users")
-                .document(uid)
-                .collection("captures")
-                .document(docId)
-                .delete()
+        CaptureRepository.deleteCapture(uid, docId)
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(this, "Deleted from history", Toast.LENGTH_SHORT).show();
+                    setResult(RESULT_OK, new Intent().putExtra(EXTRA_DELETED_DOC_ID, docId));
                     finish();
                 })
                 .addOnFailureListener(e ->
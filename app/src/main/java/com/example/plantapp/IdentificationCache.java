@@ -0,0 +1,283 @@
+package com.example.plantapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//recent identifications keyed by the perceptual hash of the prepared image
+//the identification doesn't depend on the role, each role's description is kept next to it once generated
+//a near duplicate of an earlier capture gets its result back without any model calls, or with only the
+//description request when it was captured under another role
+final class IdentificationCache {
+
+    private static final String TAG = "IdentificationCache";
+
+    static final String HIT = "id_cache_hit";
+    //plant known, description for this role still missing
+    static final String ROLE_MISS = "id_cache_role_miss";
+    static final String MISS = "id_cache_miss";
+
+    //v2 since hashes are area averaged, entries hashed the old way would not match
+    private static final String FILE_NAME = "identifications_v2.json";
+    private static final int MAX_ENTRIES = 256;
+    private static final long MAX_AGE_MS = 30L * 24L * 60L * 60L * 1000L;
+
+    //same threshold the burst uses to drop repeated frames
+    private static final int MATCH_DISTANCE = ImageHash.DUPLICATE_DISTANCE;
+
+    //a cached plant, description is null when this role hasn't been generated for it yet
+    static final class Hit {
+        final PlantIdentification identification;
+        final String description;
+
+        Hit(PlantIdentification identification, String description) {
+            this.identification = identification;
+            this.description = description;
+        }
+
+        //the full result for the role, null if its description is missing
+        PlantIdentification result() {
+            return description != null ? identification.withDescription(description) : null;
+        }
+    }
+
+    private static final class Entry {
+        final long hash;
+        //the identification, its description is whichever role came first
+        final PlantIdentification identification;
+        final Map<String, String> descriptions;
+        final long createdAt;
+        long lastUsed;
+
+        Entry(long hash, PlantIdentification identification, Map<String, String> descriptions,
+              long createdAt, long lastUsed) {
+            this.hash = hash;
+            this.identification = identification;
+            this.descriptions = descriptions;
+            this.createdAt = createdAt;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private static IdentificationCache instance;
+
+    private final Context appContext;
+    private final File file;
+    private final List<Entry> entries = new ArrayList<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    private IdentificationCache(Context context) {
+        appContext = context.getApplicationContext();
+        file = new File(appContext.getCacheDir(), FILE_NAME);
+        load();
+    }
+
+    //reads the cache file the first time, so not for the main thread
+    static synchronized IdentificationCache get(Context context) {
+        if (instance == null) instance = new IdentificationCache(context);
+        return instance;
+    }
+
+    static long hits() { return PerfMetrics.get(HIT); }
+    static long roleMisses() { return PerfMetrics.get(ROLE_MISS); }
+    static long misses() { return PerfMetrics.get(MISS); }
+
+    //closest earlier plant within MATCH_DISTANCE with this role's description if it has one, null if none
+    Hit lookup(long hash, String role) {
+        String key = normalizeRole(role);
+        Hit hit = null;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry best = closest(hash, now);
+            if (best != null) {
+                best.lastUsed = now;
+                hit = new Hit(best.identification, best.descriptions.get(key));
+            }
+        }
+
+        //a role miss still saves the identification, it counts toward the hit rate
+        String counter = hit == null ? MISS : (hit.description != null ? HIT : ROLE_MISS);
+        PerfMetrics.increment(counter);
+        long hits = hits() + roleMisses();
+        PerfMetrics.record(appContext, "id_cache_hit_rate_pct", hits * 100L / (hits + misses()));
+        return hit;
+    }
+
+    //remember a finished identification and the description for its role, failed ones are not kept,
+    //neither are "Unknown plant" or a confidence of 0, the next look at the same plant should ask again
+    void put(long hash, String role, PlantIdentification result) {
+        if (result == null || result.commonName.isEmpty() || result.description.isEmpty()) return;
+        if (result.confidence <= 0 || IdentificationParser.isUnknownPlant(result.commonName)) return;
+
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry existing = closest(hash, now);
+            if (existing != null && ImageHash.distance(hash, existing.hash) == 0) {
+                existing.descriptions.put(normalizeRole(role), result.description);
+                existing.lastUsed = now;
+            } else {
+                Map<String, String> descriptions = new HashMap<>();
+                descriptions.put(normalizeRole(role), result.description);
+                entries.add(new Entry(hash, result, descriptions, now, now));
+                evict(now);
+            }
+        }
+        writer.execute(this::save);
+    }
+
+    //add the description for another role to the plant cached for this hash
+    void putDescription(long hash, String role, String description) {
+        if (description == null || description.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry entry = closest(hash, now);
+            if (entry == null) return;
+            entry.descriptions.put(normalizeRole(role), description);
+            entry.lastUsed = now;
+        }
+        writer.execute(this::save);
+    }
+
+    //caller holds the lock
+    private Entry closest(long hash, long now) {
+        Entry best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Entry entry : entries) {
+            if (now - entry.createdAt > MAX_AGE_MS) continue;
+            int distance = ImageHash.distance(hash, entry.hash);
+            if (distance <= MATCH_DISTANCE && distance < bestDistance) {
+                best = entry;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static String normalizeRole(String role) {
+        return (role == null || role.trim().isEmpty()) ? "Hiker" : role.trim();
+    }
+
+    //drop expired entries, then the least recently used ones over the limit
+    private void evict(long now) {
+        Iterator<Entry> it = entries.iterator();
+        while (it.hasNext()) {
+            if (now - it.next().createdAt > MAX_AGE_MS) it.remove();
+        }
+        while (entries.size() > MAX_ENTRIES) {
+            Entry oldest = entries.get(0);
+            for (Entry entry : entries) {
+                if (entry.lastUsed < oldest.lastUsed) oldest = entry;
+            }
+            entries.remove(oldest);
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] bytes = new byte[(int) file.length()];
+            int off = 0;
+            while (off < bytes.length) {
+                int n = in.read(bytes, off, bytes.length - off);
+                if (n < 0) break;
+                off += n;
+            }
+            JSONArray array = new JSONArray(new String(bytes, 0, off, StandardCharsets.UTF_8));
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject o = array.getJSONObject(i);
+                Map<String, String> descriptions = new HashMap<>();
+                JSONObject byRole = o.getJSONObject("descriptions");
+                Iterator<String> roles = byRole.keys();
+                while (roles.hasNext()) {
+                    String role = roles.next();
+                    descriptions.put(role, byRole.getString(role));
+                }
+                entries.add(new Entry(o.getLong("hash"), fromJson(o.getJSONObject("identification")),
+                        descriptions, o.getLong("createdAt"), o.getLong("lastUsed")));
+            }
+            evict(System.currentTimeMillis());
+        } catch (IOException | JSONException e) {
+            //a broken cache file only costs the model calls it would have saved
+            Log.w(TAG, "discarding cache file", e);
+            entries.clear();
+            file.delete();
+        }
+    }
+
+    //runs on the writer thread, written to a temp file and swapped in
+    private void save() {
+        JSONArray array = new JSONArray();
+        try {
+            synchronized (this) {
+                for (Entry entry : entries) {
+                    JSONObject o = new JSONObject();
+                    o.put("hash", entry.hash);
+                    o.put("createdAt", entry.createdAt);
+                    o.put("lastUsed", entry.lastUsed);
+                    o.put("identification", toJson(entry.identification));
+                    o.put("descriptions", new JSONObject(entry.descriptions));
+                    array.put(o);
+                }
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "failed to serialize cache", e);
+            return;
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(array.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.w(TAG, "failed to write cache", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) tmp.delete();
+    }
+
+    private static JSONObject toJson(PlantIdentification r) throws JSONException {
+        JSONArray alternates = new JSONArray();
+        for (PlantIdentification.Candidate c : r.alternates) {
+            alternates.put(new JSONObject()
+                    .put("commonName", c.commonName)
+                    .put("scientificName", c.scientificName)
+                    .put("confidence", c.confidence));
+        }
+        return new JSONObject()
+                .put("commonName", r.commonName)
+                .put("scientificName", r.scientificName)
+                .put("description", r.description)
+                .put("confidence", r.confidence)
+                .put("alternates", alternates);
+    }
+
+    private static PlantIdentification fromJson(JSONObject o) throws JSONException {
+        List<PlantIdentification.Candidate> alternates = new ArrayList<>();
+        JSONArray array = o.optJSONArray("alternates");
+        if (array != null) {
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject c = array.getJSONObject(i);
+                alternates.add(new PlantIdentification.Candidate(c.optString("commonName"),
+                        c.optString("scientificName"), c.optInt("confidence")));
+            }
+        }
+        return new PlantIdentification(o.optString("commonName"), o.optString("scientificName"),
+                o.optString("description"), o.optInt("confidence"), alternates);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.plantapp;
+
+//decides how a finished identification is presented: identified, toxic plant warning or not sure
+//every phrase list goes into one PhraseMatcher, so a description is read once whatever the number of phrases
+//call off the main thread, the matcher is built on first use
+final class IdentificationClassifier {
+
+    enum Verdict {
+        IDENTIFIED_OK,
+        WARNING,
+        UNKNOWN
+    }
+
+    //below this confidence a plant is shown as not sure
+    static final int MIN_CONFIDENCE = 80;
+
+    //phrases are matched as whole words, ignoring case, dashes count as spaces and apostrophes are dropped,
+    //a new phrase only has to be added to its list
+
+    //the model saw no plant
+    private static final String[] NON_PLANT_PHRASES = {
+            "not a plant",
+            "no plant",
+            "no plants",
+            "does not appear to be a plant",
+            "doesn't appear to be a plant",
+            "this image does not show a plant",
+            "no plant is visible",
+            "no plant visible"
+    };
+
+    //cancels the toxic statements of its clause, "leaves are not toxic, berries are" and
+    //"leaves are not toxic but berries are toxic" still warn about the berries
+    private static final String[] SAFE_PHRASES = {
+            "non toxic",
+            "nontoxic",
+            "not toxic",
+            "isn't toxic",
+            "aren't toxic",
+            "not a toxic",
+            "not poisonous",
+            "not a poisonous",
+            "non poisonous",
+            "nonpoisonous",
+            "isn't poisonous",
+            "aren't poisonous",
+            "not considered toxic",
+            "not considered poisonous",
+            "rarely toxic",
+            "generally safe",
+            "safe to handle",
+            "safe if touched"
+    };
+
+    //"<lead> [intensifier] <word>", e.g. "is highly toxic", "can be poisonous", "it's toxic"
+    private static final String[] TOXIC_LEADS = {
+            "is", "are", "its", "can be", "may be", "considered", "generally", "often"
+    };
+    private static final String[] TOXIC_INTENSIFIERS = {
+            "", "highly", "very", "extremely", "mildly"
+    };
+    private static final String[] TOXIC_WORDS = {
+            "toxic", "poisonous", "venomous"
+    };
+    //strong enough to warn without a lead, "Highly toxic", "not highly toxic" is safe
+    private static final String[] BARE_INTENSIFIERS = {
+            "highly", "extremely"
+    };
+
+    private static final String[] TOXIC_PHRASES = {
+            "highly toxic plant",
+            "poisonous plant",
+            "toxic plant",
+            "causes severe poisoning",
+            "can cause poisoning if ingested",
+            "toxic if ingested",
+            "toxic if eaten",
+            "poisonous if ingested",
+            "poisonous if eaten",
+            "toxic to pets",
+            "toxic to humans",
+            "deadly poisonous",
+            "can be fatal"
+    };
+
+    //contrastive conjunctions start a new clause like punctuation does
+    private static final String[] CLAUSE_BREAKS = {
+            "but", "however", "although", "while"
+    };
+
+    private static final int NON_PLANT = 0;
+    private static final int SAFE = 1;
+    private static final int TOXIC = 2;
+    private static final int CLAUSE_BREAK = 3;
+
+    //built when the class is first used
+    private static final PhraseMatcher MATCHER = buildMatcher();
+
+    private IdentificationClassifier() {}
+
+    //verdict for the formatted description, common name and confidence of an identification
+    static Verdict classify(String description, String commonName, int confidence) {
+        if (IdentificationParser.isUnknownPlant(commonName)) return Verdict.UNKNOWN;
+
+        Scan scan = new Scan();
+        if (description != null) MATCHER.match(description, scan);
+
+        if (scan.nonPlant) return Verdict.UNKNOWN;
+        if (scan.isToxic()) return Verdict.WARNING;
+        return confidence >= MIN_CONFIDENCE ? Verdict.IDENTIFIED_OK : Verdict.UNKNOWN;
+    }
+
+    //matches arrive clause by clause, a clause's toxic statement counts once the clause had no safe phrase
+    //a clause ends at punctuation, which the matcher reports as a new clause index, or at a contrastive conjunction
+    private static final class Scan implements PhraseMatcher.Listener {
+        boolean nonPlant;
+        private boolean toxic;
+        private int clause = -1;
+        private boolean clauseToxic;
+        private boolean clauseSafe;
+
+        @Override
+        public void onMatch(int tag, int matchClause) {
+            if (matchClause != clause) {
+                endClause();
+                clause = matchClause;
+            }
+            if (tag == CLAUSE_BREAK) endClause();
+            else if (tag == NON_PLANT) nonPlant = true;
+            else if (tag == SAFE) clauseSafe = true;
+            else clauseToxic = true;
+        }
+
+        private void endClause() {
+            if (clauseToxic && !clauseSafe) toxic = true;
+            clauseToxic = false;
+            clauseSafe = false;
+        }
+
+        //the last clause, read after the scan
+        boolean isToxic() {
+            endClause();
+            return toxic;
+        }
+    }
+
+    private static PhraseMatcher buildMatcher() {
+        PhraseMatcher.Builder builder = new PhraseMatcher.Builder()
+                .addAll(NON_PLANT_PHRASES, NON_PLANT)
+                .addAll(SAFE_PHRASES, SAFE)
+                .addAll(TOXIC_PHRASES, TOXIC)
+                .addAll(CLAUSE_BREAKS, CLAUSE_BREAK);
+        for (String intensifier : BARE_INTENSIFIERS) {
+            for (String word : TOXIC_WORDS) {
+                builder.add(intensifier + " " + word, TOXIC);
+                builder.add("not " + intensifier + " " + word, SAFE);
+            }
+        }
+        for (String lead : TOXIC_LEADS) {
+            for (String intensifier : TOXIC_INTENSIFIERS) {
+                for (String word : TOXIC_WORDS) {
+                    builder.add(lead + " " + intensifier + " " + word, TOXIC);
+                }
+            }
+        }
+        return builder.build();
+    }
+}
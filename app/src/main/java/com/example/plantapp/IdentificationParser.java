@@ -0,0 +1,293 @@
+package com.example.plantapp;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//cleans and validates the text gemini returns for a plant identification
+final class IdentificationParser {
+
+    //keys of the structured identification response
+    static final String KEY_COMMON_NAME     = "common_name";
+    static final String KEY_SCIENTIFIC_NAME = "scientific_name";
+    static final String KEY_CONFIDENCE      = "confidence";
+    static final String KEY_ALTERNATES      = "alternates";
+    static final String KEY_DESCRIPTION     = "description";
+
+    //leaked thoughts, instruction echoes and markdown are handled by ModelOutputSanitizer
+    private static final Pattern NAME_ALLOW = Pattern.compile("^[A-Za-z][A-Za-z .'-]{0,63}$");
+    private static final Pattern SCIENTIFIC_NAME = Pattern.compile("([A-Z][a-z]+\\s+[a-z]+(?:\\s+[a-z]+)?)");
+    private static final Pattern LINE_BREAK = Pattern.compile("\\R");
+    private static final Pattern POINT_SEPARATOR = Pattern.compile("\\s*>\\s*");
+    private static final Pattern CODE_FENCE = Pattern.compile("```(?:json)?");
+
+    //common name used when there is no plant or no usable name
+    static final String UNKNOWN_PLANT = "Unknown plant";
+
+    private IdentificationParser() {}
+
+    static boolean isUnknownPlant(String commonName) {
+        return commonName != null && UNKNOWN_PLANT.equalsIgnoreCase(commonName.trim());
+    }
+
+    //fields of a structured response that passed validation, null means the field needs the per-field fallback
+    static class Fields {
+        String commonName;
+        String scientificName;
+        String description;
+        Integer confidence;
+        List<PlantIdentification.Candidate> alternates;
+
+        boolean isComplete() {
+            return commonName != null && scientificName != null && description != null
+                    && confidence != null && alternates != null;
+        }
+    }
+
+    //parse the single structured JSON response, each field is validated on its own
+    static Fields parseStructured(String raw) {
+        Fields f = new Fields();
+        JSONObject o;
+        try {
+            o = new JSONObject(stripCodeFences(raw));
+        } catch (Exception e) {
+            return f;
+        }
+
+        Object cn = o.opt(KEY_COMMON_NAME);
+        if (cn instanceof String) f.commonName = validCommonName((String) cn);
+
+        Object sn = o.opt(KEY_SCIENTIFIC_NAME);
+        if (sn instanceof String) f.scientificName = validScientificName((String) sn);
+
+        Object desc = o.opt(KEY_DESCRIPTION);
+        if (desc instanceof String) f.description = validDescription((String) desc);
+
+        Object conf = o.opt(KEY_CONFIDENCE);
+        if (conf instanceof Number) {
+            f.confidence = clamp0to100(((Number) conf).intValue());
+        }
+
+        JSONArray alts = o.optJSONArray(KEY_ALTERNATES);
+        if (alts != null) {
+            f.alternates = parseAlternates(alts);
+        }
+        return f;
+    }
+
+    //cleaned common name, or null if it does not look like a name
+    static String validCommonName(String raw) {
+        String parsed = stripInstructionEcho(cleanCommonName(raw));
+        return gateNameOrFallback(parsed, null);
+    }
+
+    //cleaned scientific name, empty is allowed when the model does not know it
+    static String validScientificName(String raw) {
+        String s = raw.trim();
+        return s.isEmpty() ? "" : gateNameOrFallback(cleanScientificName(s), null);
+    }
+
+    //cleaned description, or null if it is empty or a leaked thought
+    static String validDescription(String raw) {
+        if (startsWithLeak(raw)) return null;
+        String d = sanitizePlainTextKeepDashes(raw);
+        return d.isEmpty() ? null : d;
+    }
+
+    //parsed alternates, or null if the text is not a JSON array
+    static List<PlantIdentification.Candidate> validAlternates(String raw) {
+        try {
+            return parseAlternates(new JSONArray(stripCodeFences(raw)));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    //parses the scientific name from the per-field text response
+    static String parseScientificNameText(String cleaned) {
+        String raw = (cleaned == null) ? "" : cleaned.trim();
+        return gateNameOrFallback(cleanScientificName(sanitizePlainText(raw)), "");
+    }
+
+    //parses the common name from the per-field JSON response
+    static String parseCommonNameText(String cleaned) {
+        String raw = (cleaned == null) ? "" : cleaned.trim();
+        String parsed = parseCommonNameJson(raw);
+        if (parsed.isEmpty()) parsed = cleanCommonName(sanitizePlainText(raw));
+        parsed = stripInstructionEcho(parsed);
+        return gateNameOrFallback(parsed, UNKNOWN_PLANT);
+    }
+
+    //parses the confidence from the per-field text response
+    static int parseConfidenceText(String cleaned) {
+        String raw = (cleaned == null || cleaned.isEmpty()) ? "0" : cleaned.trim();
+        return clamp0to100(extractFirstInt(raw));
+    }
+
+    static String stripThoughtPreamble(String s) {
+        return ModelOutputSanitizer.stripThoughts(s);
+    }
+    static boolean startsWithLeak(String s) {
+        return ModelOutputSanitizer.startsWithLeak(s);
+    }
+    static String hardStripMetaLabels(String s) {
+        return ModelOutputSanitizer.stripMetaLabels(s);
+    }
+    static String stripInstructionEcho(String s) {
+        return ModelOutputSanitizer.stripInstructionEcho(s);
+    }
+    static String gateNameOrFallback(String candidate, String fallback) {
+        if (candidate == null) return fallback;
+        String c = candidate.trim();
+        if (c.contains("\n")) {
+            for (String line : LINE_BREAK.split(c)) {
+                String ln = line.trim();
+                if (!ln.isEmpty()) { c = ln; break; }
+            }
+        }
+        if (ModelOutputSanitizer.isMetaLabel(c))
+            return fallback;
+        if (!NAME_ALLOW.matcher(c).matches())
+            return fallback;
+        return c;
+    }
+
+    //extract the first 3 digits from a string
+    static int extractFirstInt(String s) {
+        return ModelOutputSanitizer.extractFirstInt(s);
+    }
+    static int clamp0to100(int v) { return Math.max(0, Math.min(100, v)); }
+
+    //cleans the text but preserves dashes
+    static String sanitizePlainTextKeepDashes(String s) {
+        return ModelOutputSanitizer.plainText(s);
+    }
+
+    //converts text to formatted points
+    static String formatPoints(String text) {
+        if (text == null) return "";
+        String formatted = POINT_SEPARATOR.matcher(text).replaceAll("\n\n");
+        return formatted.trim();
+    }
+
+    //cleans up plain text
+    static String sanitizePlainText(String s) {
+        return ModelOutputSanitizer.plainText(s);
+    }
+
+    //extracts and cleans the scientific name
+    static String cleanScientificName(String raw) {
+        if (raw == null) return "";
+        String s = stripTrailingDot(sanitizePlainText(raw));
+        Matcher m = SCIENTIFIC_NAME.matcher(s);
+        if (m.find()) return m.group(1);
+        return LINE_BREAK.split(s, 2)[0].trim();
+    }
+
+    //extracts and cleans the common name
+    static String cleanCommonName(String raw) {
+        if (raw == null) return "";
+        String s = stripTrailingDot(sanitizePlainText(raw));
+        String first = "";
+        for (String line : LINE_BREAK.split(s)) {
+            String ln = line.trim();
+            if (ln.isEmpty()) continue;
+            if (ModelOutputSanitizer.isMetaLabel(ln)) continue;
+            first = ln; break;
+        }
+        if (first.isEmpty()) first = LINE_BREAK.split(s, 2)[0].trim();
+        if (startsWithLeak(first)) first = UNKNOWN_PLANT;
+        return first.length() > 40 ? first.substring(0, 40) + "…" : first;
+    }
+
+    //parse common name JSON from model
+    static String parseCommonNameJson(String raw) {
+        try {
+            JSONObject o = new JSONObject(stripCodeFences(raw));
+            String cn = o.optString(KEY_COMMON_NAME, "").trim();
+            return cleanCommonName(cn);
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    //parse a list of possible alternates
+    static List<PlantIdentification.Candidate> parseAlternatesJson(String raw) {
+        try {
+            return parseAlternates(new JSONArray(stripCodeFences(raw)));
+        } catch (Exception ignored) {
+            return new ArrayList<>();
+        }
+    }
+
+    private static List<PlantIdentification.Candidate> parseAlternates(JSONArray arr) {
+        List<PlantIdentification.Candidate> alternates = new ArrayList<>();
+        try {
+            for (int i = 0; i < arr.length(); i++) {
+                JSONObject o = arr.getJSONObject(i);
+                String cn = cleanCommonName(sanitizePlainText(o.optString(KEY_COMMON_NAME, "")));
+                String sn = cleanScientificName(sanitizePlainText(o.optString(KEY_SCIENTIFIC_NAME, "")));
+                int k = clamp0to100(o.optInt(KEY_CONFIDENCE, 0));
+                if (!cn.isEmpty() || !sn.isEmpty()) {
+                    alternates.add(new PlantIdentification.Candidate(cn, sn, k));
+                }
+            }
+        } catch (Exception ignored) {}
+        Collections.sort(alternates, (a, b) -> Integer.compare(b.confidence, a.confidence));
+        if (alternates.size() > 3) alternates.subList(3, alternates.size()).clear();
+        return alternates;
+    }
+
+    //the description as it is shown and saved: one point per line without meta labels or instruction echoes
+    static String formatDescription(String description) {
+        String formatted = formatPoints(description);
+        formatted = hardStripMetaLabels(formatted);
+        return stripInstructionEcho(formatted);
+    }
+
+    //formats the description for display, adds the alternates sentence when confidence is low
+    static String formatDescription(PlantIdentification result) {
+        String formattedDescription = formatDescription(result.description);
+        if (formattedDescription.isEmpty()) {
+            formattedDescription = "No description available for this image.";
+        }
+
+        List<PlantIdentification.Candidate> alternates = result.alternates;
+        if (result.confidence < 80 && !alternates.isEmpty()) {
+            String sentence = buildAlternatesSentence(alternates);
+            if (!sentence.isEmpty()) {
+                formattedDescription = formattedDescription + "\n\n" + sentence;
+            }
+        }
+        return formattedDescription;
+    }
+
+    //build a sentence that lists 3 alternate candidates
+    static String buildAlternatesSentence(List<PlantIdentification.Candidate> items) {
+        List<String> names = new ArrayList<>();
+        for (PlantIdentification.Candidate c : items) {
+            String name = (c.commonName != null && !c.commonName.isEmpty())
+                    ? c.commonName
+                    : (c.scientificName != null ? c.scientificName : "");
+            if (!name.isEmpty()) names.add(name);
+        }
+        if (names.isEmpty()) return "";
+        if (names.size() == 1) return "It could also be: " + names.get(0) + ".";
+        if (names.size() == 2) return "It could also be: " + names.get(0) + " or " + names.get(1) + ".";
+        return "It could also be: " + names.get(0) + ", " + names.get(1) + " or " + names.get(2) + ".";
+    }
+
+    private static String stripTrailingDot(String s) {
+        return s.endsWith(".") ? s.substring(0, s.length() - 1) : s;
+    }
+
+    private static String stripCodeFences(String raw) {
+        if (raw == null) return "";
+        return CODE_FENCE.matcher(raw).replaceAll("").trim();
+    }
+}
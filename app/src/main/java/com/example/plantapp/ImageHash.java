@@ -0,0 +1,95 @@
+package com.example.plantapp;
+
+import android.graphics.Bitmap;
+
+//64 bit difference hash of an image, near identical frames end up a few bits apart
+final class ImageHash {
+
+    //hamming distance at or below this counts as the same shot
+    static final int DUPLICATE_DISTANCE = 6;
+
+    private static final int HASH_W = 9;
+    private static final int HASH_H = 8;
+
+    private ImageHash() {}
+
+    //hash of a jpeg, returns null if it can't be decoded
+    static Long ofJpeg(byte[] jpeg) {
+        if (jpeg == null || jpeg.length == 0) return null;
+
+        //the hash only needs a 9x8 image so decode as small as the decoder allows
+        Bitmap decoded = BitmapDecoder.decode(jpeg, 64, 0);
+        if (decoded == null) return null;
+
+        long hash = ofBitmap(decoded);
+        BitmapDecoder.release(decoded);
+        return hash;
+    }
+
+    //hash of a bitmap, compares each cell's brightness with its right neighbour
+    //each of the 9x8 cells is the average of every pixel in it, scaling a full frame straight down to 9x8
+    //only samples a few pixels per cell and the hash then changes with sensor noise
+    static long ofBitmap(Bitmap bitmap) {
+        int w = bitmap.getWidth();
+        int h = bitmap.getHeight();
+        if (w < HASH_W || h < HASH_H) {
+            Bitmap small = Bitmap.createScaledBitmap(bitmap, HASH_W, HASH_H, true);
+            int[] pixels = new int[HASH_W * HASH_H];
+            small.getPixels(pixels, 0, HASH_W, 0, 0, HASH_W, HASH_H);
+            if (small != bitmap) small.recycle();
+            return ofPixels(pixels);
+        }
+
+        //one row at a time, so no copy of the whole frame is made
+        long[] sums = new long[HASH_W * HASH_H];
+        int[] counts = new int[HASH_W * HASH_H];
+        int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            bitmap.getPixels(row, 0, w, 0, y, w, 1);
+            int cellRow = y * HASH_H / h * HASH_W;
+            for (int x = 0; x < w; x++) {
+                int cell = cellRow + x * HASH_W / w;
+                sums[cell] += luma(row[x]);
+                counts[cell]++;
+            }
+        }
+        int[] cells = new int[HASH_W * HASH_H];
+        for (int i = 0; i < cells.length; i++) cells[i] = (int) (sums[i] / counts[i]);
+        return ofLuma(cells);
+    }
+
+    //hash of 9x8 argb pixels, row by row
+    static long ofPixels(int[] argb) {
+        int[] cells = new int[HASH_W * HASH_H];
+        for (int i = 0; i < cells.length; i++) cells[i] = luma(argb[i]);
+        return ofLuma(cells);
+    }
+
+    //hash of 9x8 brightness values, row by row
+    private static long ofLuma(int[] cells) {
+        long hash = 0L;
+        int bit = 0;
+        for (int y = 0; y < HASH_H; y++) {
+            for (int x = 0; x < HASH_W - 1; x++) {
+                if (cells[y * HASH_W + x] > cells[y * HASH_W + x + 1]) hash |= 1L << bit;
+                bit++;
+            }
+        }
+        return hash;
+    }
+
+    static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    static boolean isDuplicate(long a, long b) {
+        return distance(a, b) <= DUPLICATE_DISTANCE;
+    }
+
+    private static int luma(int argb) {
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = argb & 0xFF;
+        return (r * 299 + g * 587 + b * 114) / 1000;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.plantapp;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.ByteArrayOutputStream;
+
+//capture image prepared once for gemini: downscaled and re-encoded
+//every model request for a capture shares the same jpeg buffer
+class InferenceImage {
+
+    //gemini tiles images at 768px, anything bigger only costs upload bytes and tokens
+    static final int MAX_EDGE_PX = 768;
+    static final int JPEG_QUALITY = 85;
+    static final String MIME_TYPE = "image/jpeg";
+
+    //jpeg bytes sent to the model
+    final byte[] jpeg;
+    //the downscaled bitmap, also good enough to display
+    final Bitmap bitmap;
+
+    private InferenceImage(byte[] jpeg, Bitmap bitmap) {
+        this.jpeg = jpeg;
+        this.bitmap = bitmap;
+    }
+
+    //prepare the full capture, returns null if the bytes can't be decoded
+    static InferenceImage prepare(byte[] capture) {
+        if (capture == null || capture.length == 0) return null;
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(capture, 0, capture.length, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inSampleSize = sampleSizeFor(Math.max(bounds.outWidth, bounds.outHeight), MAX_EDGE_PX);
+        Bitmap decoded = BitmapFactory.decodeByteArray(capture, 0, capture.length, opts);
+        if (decoded == null) return null;
+
+        Bitmap scaled = decoded;
+        int longEdge = Math.max(decoded.getWidth(), decoded.getHeight());
+        if (longEdge > MAX_EDGE_PX) {
+            float scale = MAX_EDGE_PX / (float) longEdge;
+            scaled = Bitmap.createScaledBitmap(decoded,
+                    Math.round(decoded.getWidth() * scale),
+                    Math.round(decoded.getHeight() * scale),
+                    true);
+            if (scaled != decoded) decoded.recycle();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(capture.length / 4);
+        scaled.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        return new InferenceImage(out.toByteArray(), scaled);
+    }
+
+    //largest power of two that keeps the long edge at or above the target
+    static int sampleSizeFor(int longEdge, int target) {
+        int sample = 1;
+        while (longEdge / (sample * 2) >= target) {
+            sample *= 2;
+        }
+        return sample;
+    }
+}
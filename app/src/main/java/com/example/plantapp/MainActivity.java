@@ -2,9 +2,6 @@ package com.example.plantapp;
 
 import android.annotation.SuppressLint;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.os.Build;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -12,12 +9,9 @@ import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.ImageButton;
-import android.widget.ImageView;
-import android.widget.LinearLayout;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
-import android.widget.FrameLayout;
 
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AlertDialog;
@@ -25,18 +19,22 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.SetOptions;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 //main screen of the app
@@ -51,7 +49,13 @@ public class MainActivity extends AppCompatActivity {
     private Spinner roleSpinner;
 
     //"My Garden" UI
-    private LinearLayout gardenStripLayout;
+    private static final int GARDEN_SIZE = 20;
+    private static final int GARDEN_MIN_CONFIDENCE = 50;
+    //pages fetched at most when captures have to be skipped
+    private static final int GARDEN_MAX_PAGES = 3;
+    private int gardenLoadGeneration = 0;
+    private RecyclerView gardenRecyclerView;
+    private GardenAdapter gardenAdapter;
     private TextView gardenEmptyText;
 
     //PERSONA!!!!!!! (disturbing the peace)
@@ -83,8 +87,9 @@ public class MainActivity extends AppCompatActivity {
         roleSpinner   = findViewById(R.id.RoleSpinner);
         infoButton    = findViewById(R.id.InfoButton);
 
-        gardenStripLayout = findViewById(R.id.GardenStrip);
-        gardenEmptyText   = findViewById(R.id.GardenEmptyText);
+        gardenRecyclerView = findViewById(R.id.MyGardenRecyclerView);
+        gardenEmptyText    = findViewById(R.id.GardenEmptyText);
+        setupGarden();
 
         ArrayAdapter<String> adapter = new ArrayAdapter<>(
                 this,
@@ -130,6 +135,8 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
+        //back home, the camera network kept for back-to-back captures is no longer needed
+        EspLink.release();
         loadGardenThumbnails();
     }
 
@@ -185,144 +192,137 @@ public class MainActivity extends AppCompatActivity {
     private void loadGardenThumbnails() {
         FirebaseUser user = mAuth.getCurrentUser();
         if (user == null) {
-            gardenStripLayout.removeAllViews();
+            gardenAdapter.submitList(null);
             gardenEmptyText.setVisibility(View.VISIBLE);
             return;
         }
 
-        String uid = user.getUid();
+        int generation = ++gardenLoadGeneration;
+        DocumentReference userDoc = db.collection("users").document(user.getUid());
 
-        db.collection("users")
-                .document(uid)
-                .collection("captures")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .limit(50)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    gardenStripLayout.removeAllViews();
+        //the user document says whether the small capture summaries can be read instead of the full captures
+        userDoc.get()
+                .addOnSuccessListener(doc -> {
+                    if (generation != gardenLoadGeneration) return;
+                    loadGarden(CaptureRepository.listCollection(doc), generation);
+                })
+                .addOnFailureListener(e -> {
+                    if (generation != gardenLoadGeneration) return;
+                    loadGarden(userDoc.collection(CaptureRepository.CAPTURES), generation);
+                });
+    }
 
-                    if (querySnapshot.isEmpty()) {
-                        gardenEmptyText.setVisibility(View.VISIBLE);
-                        return;
-                    }
+    private void loadGarden(CollectionReference captures, int generation) {
+        //confidence filter and limit run in firestore (index in firestore.indexes.json)
+        Query filtered = captures
+                .whereGreaterThanOrEqualTo("confidence", GARDEN_MIN_CONFIDENCE)
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+
+        fetchGardenPage(filtered, captures.orderBy("timestamp", Query.Direction.DESCENDING),
+                null, new ArrayList<>(), GARDEN_MAX_PAGES, generation);
+    }
 
-                    int added = 0;
-
-                    for (QueryDocumentSnapshot doc : querySnapshot) {
-                        if (added >= 20) break; // only show up to 20 thumbnails
-
-                        Long confLong = doc.getLong("confidence");
-                        int confidence = (confLong != null) ? confLong.intValue() : 0;
-
-                        // Only show plants with confidence >= 50
-                        if (confidence < 50) continue;
-
-                        String docId          = doc.getId();
-                        String imageUrl       = doc.getString("url");
-                        String role           = doc.getString("role");
-                        String commonName     = doc.getString("commonName");
-                        String scientificName = doc.getString("scientificName");
-                        String description    = doc.getString("description");
-                        String dateTime       = doc.getString("dateTime");
-
-                        if (imageUrl == null || imageUrl.trim().isEmpty()) continue;
-
-                        addGardenThumbnail(
-                                docId,
-                                imageUrl,
-                                role,
-                                commonName,
-                                scientificName,
-                                description,
-                                confidence,
-                                dateTime
-                        );
-                        added++;
+    //fetch one page and keep paging while tiles are still missing, e.g. captures without an image url
+    //if the filtered query fails (index not deployed yet) it starts over on the unfiltered query and filters here
+    private void fetchGardenPage(Query query,
+                                 Query fallback,
+                                 DocumentSnapshot after,
+                                 List<GardenAdapter.GardenItem> items,
+                                 int pagesLeft,
+                                 int generation) {
+        Query page = after != null ? query.startAfter(after) : query;
+        page.limit(GARDEN_SIZE)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    //a newer load already started
+                    if (generation != gardenLoadGeneration) return;
+
+                    List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+                    for (DocumentSnapshot doc : docs) {
+                        if (items.size() >= GARDEN_SIZE) break;
+                        GardenAdapter.GardenItem item = toGardenItem(doc);
+                        if (item != null) items.add(item);
                     }
 
-                    if (added == 0) {
-                        gardenEmptyText.setVisibility(View.VISIBLE);
+                    boolean moreAvailable = docs.size() == GARDEN_SIZE;
+                    if (items.size() < GARDEN_SIZE && moreAvailable && pagesLeft > 1) {
+                        fetchGardenPage(query, fallback, docs.get(docs.size() - 1), items, pagesLeft - 1, generation);
                     } else {
-                        gardenEmptyText.setVisibility(View.GONE);
+                        showGarden(items);
                     }
                 })
                 .addOnFailureListener(e -> {
-                    gardenStripLayout.removeAllViews();
-                    gardenEmptyText.setVisibility(View.VISIBLE);
+                    if (generation != gardenLoadGeneration) return;
+                    if (fallback != null) {
+                        fetchGardenPage(fallback, null, null, new ArrayList<>(), GARDEN_MAX_PAGES, generation);
+                    } else {
+                        gardenAdapter.submitList(null);
+                        gardenEmptyText.setVisibility(View.VISIBLE);
+                    }
                 });
     }
 
+    //garden tile for a capture, null if it shouldn't be shown
+    private static GardenAdapter.GardenItem toGardenItem(DocumentSnapshot doc) {
+        Long confLong = doc.getLong("confidence");
+        int confidence = (confLong != null) ? confLong.intValue() : 0;
+
+        // Only show plants with confidence >= 50, the filtered query already did this but the fallback didn't
+        if (confidence < GARDEN_MIN_CONFIDENCE) return null;
+
+        String imageUrl = doc.getString("url");
+        if (imageUrl == null || imageUrl.trim().isEmpty()) return null;
+
+        return new GardenAdapter.GardenItem(
+                doc.getId(),
+                imageUrl,
+                doc.getString("thumbUrl"),
+                doc.getString("role"),
+                doc.getString("commonName"),
+                doc.getString("scientificName"),
+                doc.getString("description"),
+                confidence,
+                doc.getString("dateTime")
+        );
+    }
 
-    //create a thumbnail view and add it to the garden strip, can be clicked to go to history
-    private void addGardenThumbnail(String docId,
-                                    String imageUrl,
-                                    String role,
-                                    String commonName,
-                                    String scientificName,
-                                    String description,
-                                    int confidence,
-                                    String dateTime) {
-        FrameLayout frame = new FrameLayout(this);
-
-        int size = dpToPx(225);
-        LinearLayout.LayoutParams frameLp =
-                new LinearLayout.LayoutParams(size, size);
-        frameLp.setMargins(0, 0, dpToPx(8), 0);
-        frame.setLayoutParams(frameLp);
-
-        frame.setBackgroundResource(R.drawable.history_item_bg);
-
-        int innerPad = dpToPx(4);
-        frame.setPadding(innerPad, innerPad, innerPad, innerPad);
-
-        ImageView iv = new ImageView(this);
-        FrameLayout.LayoutParams ivLp =
-                new FrameLayout.LayoutParams(
-                        FrameLayout.LayoutParams.MATCH_PARENT,
-                        FrameLayout.LayoutParams.MATCH_PARENT
-                );
-        iv.setLayoutParams(ivLp);
-        iv.setScaleType(ImageView.ScaleType.CENTER_CROP);
-
-        iv.setBackgroundResource(R.drawable.garden_thumb_rounded_bg);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            iv.setClipToOutline(true);
-        }
+    private void showGarden(List<GardenAdapter.GardenItem> items) {
+        //only tiles that changed since the last visit are rebound
+        gardenAdapter.submitList(items);
+        gardenEmptyText.setVisibility(items.isEmpty() ? View.VISIBLE : View.GONE);
+    }
 
-        frame.addView(iv);
-        gardenStripLayout.addView(frame);
-
-        frame.setOnClickListener(v -> {
-            Intent intent = new Intent(MainActivity.this, HistoryDescriptionActivity.class);
-            intent.putExtra("docId", docId);
-            intent.putExtra("userRole", role != null ? role : "Hiker");
-            intent.putExtra("imageUrl", imageUrl);
-            intent.putExtra("commonName", commonName);
-            intent.putExtra("scientificName", scientificName);
-            intent.putExtra("description", description);
-            intent.putExtra("confidence", confidence);
-            intent.putExtra("dateTime", dateTime);
-            intent.putExtra("allowDelete", true);  // from your own garden, so allow delete
-            startActivity(intent);
-        });
+    //horizontal recycled strip for the garden, tiles are prefetched just before they scroll in
+    private void setupGarden() {
+        LinearLayoutManager layoutManager =
+                new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false);
+        layoutManager.setItemPrefetchEnabled(true);
+        gardenRecyclerView.setLayoutManager(layoutManager);
+        //a few tiles just scrolled past stay bound so scrolling back doesn't rebind them
+        gardenRecyclerView.setItemViewCacheSize(4);
+
+        gardenAdapter = new GardenAdapter(ThumbnailCache.get(this), dpToPx(225), this::openGardenItem);
+        gardenRecyclerView.setAdapter(gardenAdapter);
+    }
 
-        // Load image from Firebase Storage into the ImageView
-        try {
-            StorageReference ref = FirebaseStorage.getInstance().getReferenceFromUrl(imageUrl);
-            final long MAX = 1024L * 1024L;
-
-            ref.getBytes(MAX)
-                    .addOnSuccessListener(bytes -> {
-                        Bitmap bmp = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-                        if (bmp != null) {
-                            iv.setImageBitmap(bmp);
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                    });
-        } catch (Exception e) {
-            // invalid URL - ignore this thumbnail
-        }
+    //open a garden capture in history, can be deleted from there since it is the user's own
+    private void openGardenItem(GardenAdapter.GardenItem item) {
+        Intent intent = new Intent(MainActivity.this, HistoryDescriptionActivity.class);
+        intent.putExtra("docId", item.docId);
+        intent.putExtra("userRole", item.role != null ? item.role : "Hiker");
+        intent.putExtra("imageUrl", item.imageUrl);
+        intent.putExtra("thumbUrl", item.thumbUrl);
+        intent.putExtra("commonName", item.commonName);
+        intent.putExtra("scientificName", item.scientificName);
+        intent.putExtra("description", item.description);
+        intent.putExtra("confidence", item.confidence);
+        intent.putExtra("dateTime", item.dateTime);
+        FirebaseUser user = mAuth.getCurrentUser();
+        if (user != null) intent.putExtra("ownerUid", user.getUid());
+        //after switching the role spinner the capture shows that role's description
+        intent.putExtra("viewerRole", currentRole);
+        intent.putExtra("allowDelete", true);  // from your own garden, so allow delete
+        startActivity(intent);
     }
 
     //convert dp units to pixels
@@ -340,6 +340,14 @@ public class MainActivity extends AppCompatActivity {
         db.collection("users").document(user.getUid())
                 .get()
                 .addOnSuccessListener(doc -> {
+                    //accounts from before the capture count and summaries were kept get them filled in once here
+                    if (doc.exists() && CaptureRepository.captureCountOf(doc) < 0) {
+                        CaptureRepository.backfillCaptureCount(user.getUid());
+                    }
+                    if (doc.exists() && !CaptureRepository.hasSummaries(doc)) {
+                        CaptureRepository.backfillSummaries(user.getUid());
+                    }
+
                     String role = (doc.exists() ? doc.getString("role") : null);
                     if (role == null || role.trim().isEmpty()) role = "Hiker";
 
@@ -384,6 +392,9 @@ public class MainActivity extends AppCompatActivity {
         if (mAuth.getCurrentUser() == null) {
             startActivity(new Intent(MainActivity.this, LoginActivity.class));
             finish();
+            return;
         }
+        //captures this account left in the outbox while someone else was logged in sync now
+        CaptureSyncWorker.schedule(this);
     }
 }
@@ -0,0 +1,66 @@
+package com.example.plantapp;
+
+import java.io.ByteArrayOutputStream;
+
+//splits a multipart mjpeg byte stream into jpeg frames by scanning for the SOI/EOI markers
+//bytes can be fed in chunks of any size, part headers and boundaries between frames are skipped
+final class MjpegFrameParser {
+
+    //a frame bigger than this means we lost sync, drop it and look for the next SOI
+    private static final int MAX_FRAME_BYTES = 2 * 1024 * 1024;
+
+    interface FrameListener {
+        void onFrame(byte[] jpeg);
+    }
+
+    private final FrameListener listener;
+    private final ByteArrayOutputStream frame = new ByteArrayOutputStream(64 * 1024);
+    private boolean inFrame = false;
+    private int prev = -1;
+
+    MjpegFrameParser(FrameListener listener) {
+        this.listener = listener;
+    }
+
+    void feed(byte[] buf, int off, int len) {
+        int end = off + len;
+        int frameStart = inFrame ? off : -1;
+
+        for (int i = off; i < end; i++) {
+            int b = buf[i] & 0xFF;
+
+            if (!inFrame) {
+                //0xFFD8 starts a jpeg
+                if (prev == 0xFF && b == 0xD8) {
+                    inFrame = true;
+                    frame.reset();
+                    frame.write(0xFF);
+                    frameStart = i;
+                }
+            } else if (prev == 0xFF && b == 0xD9) {
+                //0xFFD9 ends it
+                frame.write(buf, frameStart, i + 1 - frameStart);
+                inFrame = false;
+                frameStart = -1;
+                prev = -1;
+                listener.onFrame(frame.toByteArray());
+                continue;
+            }
+            prev = b;
+        }
+
+        if (inFrame && frameStart >= 0) {
+            frame.write(buf, frameStart, end - frameStart);
+            if (frame.size() > MAX_FRAME_BYTES) {
+                inFrame = false;
+                frame.reset();
+            }
+        }
+    }
+
+    void reset() {
+        inFrame = false;
+        prev = -1;
+        frame.reset();
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.plantapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.view.TextureView;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+//native preview for the ESP32 mjpeg stream: reads it with okhttp, decodes each frame into a reused bitmap
+//and draws it straight onto a TextureView, replaces the WebView page with an <img> tag
+final class MjpegPreview {
+
+    //wait before reconnecting after the stream drops (ms)
+    private static final long RECONNECT_DELAY_MS = 1_000L;
+    //how often fps and decode time are reported (ms)
+    private static final long REPORT_INTERVAL_MS = 5_000L;
+
+    private final Context appContext;
+    private final TextureView view;
+    private final MjpegFrameParser.FrameListener tap;
+
+    private Session session;
+
+    //tap gets every complete jpeg after it is drawn, may be null
+    MjpegPreview(Context context, TextureView view, MjpegFrameParser.FrameListener tap) {
+        this.appContext = context.getApplicationContext();
+        this.view = view;
+        this.tap = tap;
+    }
+
+    //start reading the stream, the client decides which network it goes over
+    synchronized void start(OkHttpClient client, String url) {
+        if (session != null) return;
+
+        session = new Session(client, new Request.Builder().url(url).build());
+        new Thread(session, "MjpegPreview").start();
+    }
+
+    synchronized void stop() {
+        if (session == null) return;
+        session.cancel();
+        session = null;
+    }
+
+    //one start/stop cycle, owns its reader thread and decode buffers so a quick restart can't share them
+    private final class Session implements Runnable {
+        private final OkHttpClient client;
+        private final Request request;
+
+        private volatile boolean running = true;
+        private volatile Call call;
+
+        //decode target reused for every frame while the stream size stays the same
+        private Bitmap frameBitmap;
+        private final BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+        private final Rect srcRect = new Rect();
+        private final Rect dstRect = new Rect();
+
+        //counters since the last report
+        private int framesSinceReport = 0;
+        private long decodeNsSinceReport = 0L;
+        private long lastReportMs = 0L;
+
+        Session(OkHttpClient client, Request request) {
+            this.client = client;
+            this.request = request;
+            decodeOptions.inMutable = true;
+            //camera frames have no alpha, half the bytes per pixel of ARGB_8888
+            decodeOptions.inPreferredConfig = Bitmap.Config.RGB_565;
+        }
+
+        void cancel() {
+            running = false;
+            Call c = call;
+            if (c != null) c.cancel();
+        }
+
+        //keeps the stream open until cancelled, reconnects when it drops
+        @Override
+        public void run() {
+            MjpegFrameParser parser = new MjpegFrameParser(this::onFrame);
+            byte[] buf = new byte[16 * 1024];
+            lastReportMs = SystemClock.elapsedRealtime();
+
+            while (running) {
+                Call c = client.newCall(request);
+                call = c;
+                if (!running) c.cancel();
+                try (Response response = c.execute()) {
+                    ResponseBody body = response.body();
+                    if (!response.isSuccessful() || body == null) throw new IOException("HTTP " + response.code());
+
+                    parser.reset();
+                    InputStream in = body.byteStream();
+                    int n;
+                    while (running && (n = in.read(buf)) != -1) {
+                        parser.feed(buf, 0, n);
+                    }
+                } catch (IOException ignored) {
+                }
+
+                if (!running) break;
+                SystemClock.sleep(RECONNECT_DELAY_MS);
+            }
+
+            if (frameBitmap != null) {
+                frameBitmap.recycle();
+                frameBitmap = null;
+            }
+        }
+
+        //decode and draw one frame, runs on the reader thread
+        private void onFrame(byte[] jpeg) {
+            if (!running) return;
+            long decodeStart = SystemClock.elapsedRealtimeNanos();
+            Bitmap bitmap = decode(jpeg);
+            decodeNsSinceReport += SystemClock.elapsedRealtimeNanos() - decodeStart;
+
+            if (bitmap != null) {
+                draw(bitmap);
+                framesSinceReport++;
+            }
+            reportIfDue();
+
+            if (tap != null) tap.onFrame(jpeg);
+        }
+
+        //decode into the reused bitmap, a new one is only allocated when the frame size changes
+        private Bitmap decode(byte[] jpeg) {
+            decodeOptions.inBitmap = frameBitmap;
+            Bitmap decoded;
+            try {
+                decoded = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, decodeOptions);
+            } catch (IllegalArgumentException e) {
+                //frame doesn't fit the reused bitmap, decode into a fresh one
+                decodeOptions.inBitmap = null;
+                decoded = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, decodeOptions);
+            }
+            if (decoded != null && decoded != frameBitmap) {
+                if (frameBitmap != null) frameBitmap.recycle();
+                frameBitmap = decoded;
+            }
+            return decoded;
+        }
+
+        //center crop the frame to fill the view
+        private void draw(Bitmap bitmap) {
+            if (!view.isAvailable()) return;
+            int vw = view.getWidth();
+            int vh = view.getHeight();
+            int bw = bitmap.getWidth();
+            int bh = bitmap.getHeight();
+            if (vw == 0 || vh == 0 || bw == 0 || bh == 0) return;
+
+            float scale = Math.max((float) vw / bw, (float) vh / bh);
+            int cropW = Math.round(vw / scale);
+            int cropH = Math.round(vh / scale);
+            int left = (bw - cropW) / 2;
+            int top = (bh - cropH) / 2;
+            srcRect.set(left, top, left + cropW, top + cropH);
+            dstRect.set(0, 0, vw, vh);
+
+            Canvas canvas = view.lockCanvas();
+            if (canvas == null) return;
+            try {
+                canvas.drawColor(Color.BLACK);
+                canvas.drawBitmap(bitmap, srcRect, dstRect, null);
+            } finally {
+                view.unlockCanvasAndPost(canvas);
+            }
+        }
+
+        //frame rate and average decode time over the last interval
+        private void reportIfDue() {
+            long now = SystemClock.elapsedRealtime();
+            long elapsed = now - lastReportMs;
+            if (elapsed < REPORT_INTERVAL_MS) return;
+
+            if (framesSinceReport > 0) {
+                PerfMetrics.record(appContext, "preview_fps", framesSinceReport * 1000L / elapsed);
+                PerfMetrics.record(appContext, "preview_decode_us", decodeNsSinceReport / 1000L / framesSinceReport);
+            }
+            framesSinceReport = 0;
+            decodeNsSinceReport = 0L;
+            lastReportMs = now;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.plantapp;
+
+//strips what gemini wraps around an answer: leaked thoughts, echoed prompt instructions and markdown
+//every cleanup is one pass over the text, line by line, without regexes
+//plain java so it can be tested and benchmarked on the jvm
+final class ModelOutputSanitizer {
+
+    //what a pass removes
+    //lines that start with a thought label, with or without a colon
+    private static final int THOUGHT_LINES = 1;
+    //lines that start with a meta label followed by a colon
+    private static final int META_LABELS = 1 << 1;
+    //"let's think" / "step by step" up to the end of its line
+    private static final int THOUGHT_TAILS = 1 << 2;
+    //lines repeating the prompt's output rules
+    private static final int INSTRUCTION_ECHO = 1 << 3;
+    //* _ ` ~
+    private static final int MARKDOWN = 1 << 4;
+    //whitespace runs become one space, surrounding quotes are dropped
+    private static final int ONE_LINE = 1 << 5;
+
+    private static final int PLAIN_TEXT = THOUGHT_LINES | THOUGHT_TAILS | INSTRUCTION_ECHO | MARKDOWN | ONE_LINE;
+
+    //a '-' in a label matches a dash, a space or nothing, so CHAIN-OF-THOUGHT also matches "chain of thought"
+    private static final String[] THOUGHT_WORDS = {
+            "THOUGHTS", "THOUGHT", "ANALYSIS", "ANALYZE", "REASONING", "REASON",
+            "THINKING", "THINK", "PLAN", "REFLECTION", "CHAIN-OF-THOUGHT"
+    };
+    private static final String[] META_WORDS = {
+            "THOUGHTS", "THOUGHT", "ANALYSIS", "REASONING", "THINKING", "PLAN", "REFLECTION", "CHAIN-OF-THOUGHT"
+    };
+    //labels that right after a code fence mean the thought was sent instead of the answer
+    private static final String[] FENCE_WORDS = {
+            "THOUGHTS", "THOUGHT", "ANALYSIS", "REASONING", "THINKING", "CHAIN-OF-THOUGHT"
+    };
+
+    //a ' ' in a phrase matches any whitespace, including none
+    private static final String[] INSTRUCTION_ECHOES = {
+            "do not include", "never output", "plain text only", "respond with only", "no prose", "no code fences"
+    };
+
+    private ModelOutputSanitizer() {}
+
+    //single line plain text without thoughts, instruction echoes, markdown or surrounding quotes
+    static String plainText(String s) {
+        return scan(s, PLAIN_TEXT);
+    }
+
+    //drops thought lines and "let's think" tails, keeps the line breaks of everything else
+    static String stripThoughts(String s) {
+        return scan(s, THOUGHT_LINES | THOUGHT_TAILS);
+    }
+
+    //drops "LABEL:" lines and "let's think" tails, for text already formatted into points
+    static String stripMetaLabels(String s) {
+        return scan(s, META_LABELS | THOUGHT_TAILS);
+    }
+
+    static String stripInstructionEcho(String s) {
+        return scan(s, INSTRUCTION_ECHO);
+    }
+
+    static String stripMarkdown(String s) {
+        return scan(s, MARKDOWN);
+    }
+
+    //true if the text opens with a thought instead of the answer
+    static boolean startsWithLeak(String s) {
+        if (s == null) return false;
+        int n = s.length();
+        int i = skipSpaces(s, 0, n);
+        if (labelEnd(s, i, n, THOUGHT_WORDS) >= 0) return true;
+
+        if (s.startsWith("```", i)) {
+            //the fence's language tag may run straight into the label
+            int j = i + 3;
+            while (true) {
+                if (labelEnd(s, j, n, FENCE_WORDS) >= 0) return true;
+                if (j >= n || !isAsciiLetterOrDigit(s.charAt(j))) break;
+                j++;
+            }
+            int k = skipSpaces(s, j, n);
+            if (k > j && labelEnd(s, k, n, FENCE_WORDS) >= 0) return true;
+        }
+        return letsThinkEnd(s, i, n) >= 0;
+    }
+
+    //true if the line is "LABEL:" with one of the meta labels
+    static boolean isMetaLabel(String line) {
+        if (line == null) return false;
+        int n = line.length();
+        return metaLabelAt(line, skipSpaces(line, 0, n), n);
+    }
+
+    //first run of up to 3 digits, 0 if there is none
+    static int extractFirstInt(String s) {
+        if (s == null) return 0;
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            if (!isDigit(s.charAt(i))) continue;
+            int value = 0;
+            for (int j = i; j < n && j < i + 3 && isDigit(s.charAt(j)); j++) {
+                value = value * 10 + (s.charAt(j) - '0');
+            }
+            return value;
+        }
+        return 0;
+    }
+
+    //the single pass, each line is either dropped whole or copied with the enabled cleanups applied
+    private static String scan(String s, int flags) {
+        if (s == null) return "";
+        int n = s.length();
+        boolean oneLine = (flags & ONE_LINE) != 0;
+        boolean markdown = (flags & MARKDOWN) != 0;
+        boolean tails = (flags & THOUGHT_TAILS) != 0;
+        StringBuilder out = new StringBuilder(n);
+        boolean pendingSpace = false;
+
+        int lineStart = 0;
+        while (lineStart <= n) {
+            int lineEnd = s.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = n;
+
+            //labels are looked for after indentation, and after emphasis when markdown is stripped anyway
+            int first = lineStart;
+            while (first < lineEnd && (isInlineSpace(s.charAt(first)) || (markdown && isMarkdown(s.charAt(first))))) {
+                first++;
+            }
+            boolean drop = ((flags & THOUGHT_LINES) != 0 && labelEnd(s, first, lineEnd, THOUGHT_WORDS) >= 0)
+                    || ((flags & META_LABELS) != 0 && metaLabelAt(s, first, lineEnd))
+                    || ((flags & INSTRUCTION_ECHO) != 0 && isInstructionEcho(s, first, lineEnd));
+
+            if (!drop) {
+                for (int i = lineStart; i < lineEnd; i++) {
+                    char c = s.charAt(i);
+                    if (tails && (c == 'l' || c == 'L' || c == 's' || c == 'S')
+                            && (i == 0 || !isWordChar(s.charAt(i - 1)))
+                            && (letsThinkEnd(s, i, lineEnd) >= 0 || stepByStepEnd(s, i, lineEnd) >= 0)) {
+                        break;
+                    }
+                    if (markdown && isMarkdown(c)) continue;
+                    if (oneLine && isSpace(c)) {
+                        pendingSpace = out.length() > 0;
+                        continue;
+                    }
+                    if (pendingSpace) {
+                        out.append(' ');
+                        pendingSpace = false;
+                    }
+                    out.append(c);
+                }
+                if (lineEnd < n) {
+                    if (oneLine) pendingSpace = out.length() > 0;
+                    else out.append('\n');
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        if (!oneLine) return out.toString().trim();
+
+        int start = 0;
+        int end = out.length();
+        while (start < end && out.charAt(start) == '"') start++;
+        while (end > start && out.charAt(end - 1) == '"') end--;
+        return out.substring(start, end).trim();
+    }
+
+    //index after the label at i, -1 if no label starts there as a whole word
+    private static int labelEnd(String s, int i, int end, String[] labels) {
+        for (String label : labels) {
+            int j = matchLabel(s, i, end, label);
+            if (j >= 0 && (j == end || !isWordChar(s.charAt(j)))) return j;
+        }
+        return -1;
+    }
+
+    private static int matchLabel(String s, int i, int end, String label) {
+        int j = i;
+        for (int k = 0; k < label.length(); k++) {
+            char l = label.charAt(k);
+            if (l == '-') {
+                if (j < end && (s.charAt(j) == '-' || s.charAt(j) == ' ')) j++;
+                continue;
+            }
+            if (j >= end || Character.toUpperCase(s.charAt(j)) != l) return -1;
+            j++;
+        }
+        return j;
+    }
+
+    private static boolean metaLabelAt(String s, int i, int end) {
+        for (String label : META_WORDS) {
+            int j = matchLabel(s, i, end, label);
+            if (j < 0) continue;
+            while (j < end && isSpace(s.charAt(j))) j++;
+            if (j < end && s.charAt(j) == ':') return true;
+        }
+        return false;
+    }
+
+    private static boolean isInstructionEcho(String s, int i, int end) {
+        for (String phrase : INSTRUCTION_ECHOES) {
+            if (matchPhrase(s, i, end, phrase) >= 0) return true;
+        }
+        return false;
+    }
+
+    //index after the phrase at i ignoring case, -1 if it isn't there
+    private static int matchPhrase(String s, int i, int end, String phrase) {
+        int j = i;
+        for (int k = 0; k < phrase.length(); k++) {
+            char p = phrase.charAt(k);
+            if (p == ' ') {
+                while (j < end && isSpace(s.charAt(j))) j++;
+                continue;
+            }
+            if (j >= end || Character.toLowerCase(s.charAt(j)) != p) return -1;
+            j++;
+        }
+        return j;
+    }
+
+    //"let's think" or "lets think", the words separated by at least one space
+    private static int letsThinkEnd(String s, int i, int end) {
+        int j = matchPhrase(s, i, end, "let");
+        if (j < 0) return -1;
+        if (j < end && s.charAt(j) == '\'') j++;
+        j = matchPhrase(s, j, end, "s");
+        if (j < 0 || j >= end || !isSpace(s.charAt(j))) return -1;
+        j = matchPhrase(s, j, end, " think");
+        return j < 0 || (j < end && isWordChar(s.charAt(j))) ? -1 : j;
+    }
+
+    private static int stepByStepEnd(String s, int i, int end) {
+        int j = matchPhrase(s, i, end, "step");
+        if (j < 0 || j >= end || !isSpace(s.charAt(j))) return -1;
+        j = matchPhrase(s, j, end, " by");
+        if (j < 0 || j >= end || !isSpace(s.charAt(j))) return -1;
+        j = matchPhrase(s, j, end, " step");
+        return j < 0 || (j < end && isWordChar(s.charAt(j))) ? -1 : j;
+    }
+
+    private static int skipSpaces(String s, int i, int end) {
+        while (i < end && isSpace(s.charAt(i))) i++;
+        return i;
+    }
+
+    //same set as \s
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isInlineSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isMarkdown(char c) {
+        return c == '*' || c == '_' || c == '`' || c == '~';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c);
+    }
+
+    private static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.plantapp;
+
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+//waits for a validated internet network, used after leaving the ESP32 access point
+final class NetworkReadiness {
+
+    private NetworkReadiness() {}
+
+    //blocks until a network with validated internet is up or the timeout passes, returns null on timeout
+    //must not be called on the main thread
+    static Network awaitValidatedInternet(ConnectivityManager cm, long timeoutMs) throws InterruptedException {
+        if (cm == null) return null;
+
+        Network active = cm.getActiveNetwork();
+        if (isValidatedInternet(cm.getNetworkCapabilities(active))) return active;
+
+        CountDownLatch ready = new CountDownLatch(1);
+        AtomicReference<Network> found = new AtomicReference<>();
+
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+
+        ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onCapabilitiesChanged(Network network, NetworkCapabilities caps) {
+                if (isValidatedInternet(caps) && found.compareAndSet(null, network)) {
+                    ready.countDown();
+                }
+            }
+        };
+
+        cm.registerNetworkCallback(request, callback);
+        try {
+            ready.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            try {
+                cm.unregisterNetworkCallback(callback);
+            } catch (Exception ignored) {}
+        }
+        return found.get();
+    }
+
+    private static boolean isValidatedInternet(NetworkCapabilities caps) {
+        return caps != null
+                && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.plantapp;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import com.google.firebase.analytics.FirebaseAnalytics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//small in-process performance counters, also logged to logcat and firebase analytics
+final class PerfMetrics {
+
+    private static final String TAG = "PerfMetrics";
+
+    private static final Map<String, Long> counters = new HashMap<>();
+
+    private PerfMetrics() {}
+
+    //record one measured value, e.g. a wait time in ms
+    static void record(Context context, String name, long value) {
+        Log.i(TAG, name + "=" + value);
+        if (context == null) return;
+        try {
+            Bundle params = new Bundle();
+            params.putLong(FirebaseAnalytics.Param.VALUE, value);
+            FirebaseAnalytics.getInstance(context.getApplicationContext()).logEvent(name, params);
+        } catch (Exception ignored) {}
+    }
+
+    //bump a counter, e.g. cache hits
+    static synchronized long increment(String name) {
+        Long current = counters.get(name);
+        long next = (current != null ? current : 0L) + 1L;
+        counters.put(name, next);
+        return next;
+    }
+
+    static synchronized long get(String name) {
+        Long current = counters.get(name);
+        return current != null ? current : 0L;
+    }
+}
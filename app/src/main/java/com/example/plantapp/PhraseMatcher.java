@@ -0,0 +1,211 @@
+package com.example.plantapp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//finds whole-word phrases from a fixed list in one pass over a text, an aho-corasick automaton
+//matching ignores case, any run of spaces and dashes is one space and apostrophes are ignored,
+//so "Non-toxic", "non  toxic" and "non toxic" are the same phrase
+//punctuation ends a clause, a phrase never matches across it
+final class PhraseMatcher {
+
+    //a phrase found in the text
+    interface Listener {
+        //tag of the phrase and the index of the clause it was found in
+        void onMatch(int tag, int clause);
+    }
+
+    //input symbols, a-z and 0-9 first
+    private static final int SPACE = 36;
+    //a letter the phrases never use, e.g. accented ones, still part of a word
+    private static final int OTHER_LETTER = 37;
+    private static final int SYMBOLS = 38;
+    //punctuation, not a symbol of the automaton
+    private static final int BREAK = -1;
+    //apostrophes
+    private static final int SKIP = -2;
+
+    //goto table of the automaton with the failure links folded in, SYMBOLS entries per state
+    private final int[] next;
+    //tags of the phrases ending in each state, including the ones reached through failure links
+    private final int[][] tags;
+    //length in symbols of each phrase ending in each state, parallel to tags
+    private final int[][] lengths;
+
+    private PhraseMatcher(int[] next, int[][] tags, int[][] lengths) {
+        this.next = next;
+        this.tags = tags;
+        this.lengths = lengths;
+    }
+
+    static final class Builder {
+        private final List<int[]> phrases = new ArrayList<>();
+        private final List<Integer> phraseTags = new ArrayList<>();
+
+        //the tag is reported for every match of the phrase
+        Builder add(String phrase, int tag) {
+            int[] symbols = normalize(phrase);
+            if (symbols.length == 0) throw new IllegalArgumentException("Empty phrase: " + phrase);
+            for (int symbol : symbols) {
+                if (symbol < 0) throw new IllegalArgumentException("Punctuation in phrase: " + phrase);
+            }
+            phrases.add(symbols);
+            phraseTags.add(tag);
+            return this;
+        }
+
+        Builder addAll(String[] phrases, int tag) {
+            for (String phrase : phrases) add(phrase, tag);
+            return this;
+        }
+
+        PhraseMatcher build() {
+            //trie
+            List<int[]> children = new ArrayList<>();
+            List<List<Integer>> ends = new ArrayList<>();
+            children.add(newRow());
+            ends.add(new ArrayList<>());
+            for (int p = 0; p < phrases.size(); p++) {
+                int state = 0;
+                for (int symbol : phrases.get(p)) {
+                    int child = children.get(state)[symbol];
+                    if (child < 0) {
+                        child = children.size();
+                        children.get(state)[symbol] = child;
+                        children.add(newRow());
+                        ends.add(new ArrayList<>());
+                    }
+                    state = child;
+                }
+                ends.get(state).add(p);
+            }
+
+            //failure links breadth first, missing edges point where the failure link would lead
+            int states = children.size();
+            int[] next = new int[states * SYMBOLS];
+            int[] fail = new int[states];
+            List<List<Integer>> outputs = new ArrayList<>(ends);
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                int child = children.get(0)[symbol];
+                if (child < 0) {
+                    next[symbol] = 0;
+                } else {
+                    next[symbol] = child;
+                    fail[child] = 0;
+                    queue.add(child);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                List<Integer> merged = new ArrayList<>(outputs.get(state));
+                merged.addAll(outputs.get(fail[state]));
+                outputs.set(state, merged);
+                for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                    int child = children.get(state)[symbol];
+                    if (child < 0) {
+                        next[state * SYMBOLS + symbol] = next[fail[state] * SYMBOLS + symbol];
+                    } else {
+                        next[state * SYMBOLS + symbol] = child;
+                        fail[child] = next[fail[state] * SYMBOLS + symbol];
+                        queue.add(child);
+                    }
+                }
+            }
+
+            int[][] tags = new int[states][];
+            int[][] lengths = new int[states][];
+            for (int state = 0; state < states; state++) {
+                List<Integer> out = outputs.get(state);
+                tags[state] = new int[out.size()];
+                lengths[state] = new int[out.size()];
+                for (int i = 0; i < out.size(); i++) {
+                    tags[state][i] = phraseTags.get(out.get(i));
+                    lengths[state][i] = phrases.get(out.get(i)).length;
+                }
+            }
+            return new PhraseMatcher(next, tags, lengths);
+        }
+
+        private static int[] newRow() {
+            int[] row = new int[SYMBOLS];
+            Arrays.fill(row, -1);
+            return row;
+        }
+    }
+
+    //report every phrase in the text that starts and ends on a word boundary
+    void match(CharSequence text, Listener listener) {
+        int n = text.length();
+        //symbols seen so far, a match's start is checked against the one before it
+        int[] seen = new int[n + 1];
+        int count = 0;
+        int state = 0;
+        int clause = 0;
+        //the state a match ended in, reported once the next symbol shows the word ended there
+        int endedIn = 0;
+        int endedAt = 0;
+
+        for (int i = 0; i <= n; i++) {
+            int symbol = i < n ? symbolOf(text.charAt(i)) : BREAK;
+            if (symbol == SKIP) continue;
+            //runs of spaces are one space
+            if (symbol == SPACE && count > 0 && seen[count - 1] == SPACE) continue;
+
+            if (!isWordSymbol(symbol) && endedIn != 0) {
+                report(seen, endedIn, endedAt, clause, listener);
+            }
+            endedIn = 0;
+
+            if (symbol == BREAK) {
+                state = 0;
+                count = 0;
+                clause++;
+                continue;
+            }
+
+            seen[count++] = symbol;
+            state = next[state * SYMBOLS + symbol];
+            if (tags[state].length > 0) {
+                endedIn = state;
+                endedAt = count;
+            }
+        }
+    }
+
+    private void report(int[] seen, int state, int end, int clause, Listener listener) {
+        for (int i = 0; i < tags[state].length; i++) {
+            int start = end - lengths[state][i];
+            if (start == 0 || !isWordSymbol(seen[start - 1])) listener.onMatch(tags[state][i], clause);
+        }
+    }
+
+    private static boolean isWordSymbol(int symbol) {
+        return symbol >= 0 && symbol != SPACE;
+    }
+
+    private static int symbolOf(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a';
+        if (c >= 'A' && c <= 'Z') return c - 'A';
+        if (c >= '0' && c <= '9') return 26 + (c - '0');
+        if (c == '\'' || c == '\u2019') return SKIP;
+        if (c == ' ' || c == '\t' || c == '-' || c == '\u00A0' || c == '\u2010' || c == '\u2011') return SPACE;
+        if (Character.isLetterOrDigit(c)) return OTHER_LETTER;
+        return BREAK;
+    }
+
+    private static int[] normalize(String phrase) {
+        int[] symbols = new int[phrase.length()];
+        int count = 0;
+        for (int i = 0; i < phrase.length(); i++) {
+            int symbol = symbolOf(phrase.charAt(i));
+            if (symbol == SKIP) continue;
+            if (symbol == SPACE && (count == 0 || symbols[count - 1] == SPACE)) continue;
+            symbols[count++] = symbol;
+        }
+        if (count > 0 && symbols[count - 1] == SPACE) count--;
+        return Arrays.copyOf(symbols, count);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.plantapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+//typed result of one plant identification
+public class PlantIdentification {
+
+    //an alternate species the model thinks the plant could be
+    static class Candidate {
+        final String commonName, scientificName;
+        final int confidence;
+        Candidate(String c, String s, int k) { commonName = c; scientificName = s; confidence = k; }
+    }
+
+    final String commonName;
+    final String scientificName;
+    final String description;
+    final int confidence;
+    final List<Candidate> alternates;
+
+    PlantIdentification(String commonName,
+                        String scientificName,
+                        String description,
+                        int confidence,
+                        List<Candidate> alternates) {
+        this.commonName = commonName != null ? commonName : "";
+        this.scientificName = scientificName != null ? scientificName : "";
+        this.description = description != null ? description : "";
+        this.confidence = confidence;
+        this.alternates = alternates != null
+                ? Collections.unmodifiableList(new ArrayList<>(alternates))
+                : Collections.emptyList();
+    }
+
+    //the same plant with the description written for another role
+    PlantIdentification withDescription(String description) {
+        return new PlantIdentification(commonName, scientificName, description, confidence, alternates);
+    }
+}
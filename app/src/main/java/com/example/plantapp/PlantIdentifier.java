@@ -0,0 +1,275 @@
+package com.example.plantapp;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import com.google.firebase.ai.FirebaseAI;
+import com.google.firebase.ai.GenerativeModel;
+import com.google.firebase.ai.java.GenerativeModelFutures;
+import com.google.firebase.ai.type.Content;
+import com.google.firebase.ai.type.GenerateContentResponse;
+import com.google.firebase.ai.type.GenerationConfig;
+import com.google.firebase.ai.type.GenerativeBackend;
+import com.google.firebase.ai.type.Schema;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//identifies a plant with one structured gemini request, falls back to a per-field request only for fields that fail validation
+class PlantIdentifier {
+
+    private static final String MODEL_NAME = "gemini-2.5-flash";
+
+    interface Callback { void onResult(PlantIdentification result); }
+
+    //a role description on its own, empty if the request failed, called on a background thread
+    interface DescriptionCallback { void onDescription(String description); }
+
+    //progressive results for the streaming mode, all calls come from a background thread
+    interface StreamListener extends StreamingIdentificationParser.Listener, Callback {}
+
+    private interface OnText { void accept(String text); }
+
+    private final GenerativeModelFutures structuredModel;
+    private final GenerativeModelFutures textModel;
+
+    PlantIdentifier() {
+        FirebaseAI ai = FirebaseAI.getInstance(GenerativeBackend.googleAI());
+
+        GenerationConfig.Builder configBuilder = new GenerationConfig.Builder();
+        configBuilder.responseMimeType = "application/json";
+        configBuilder.responseSchema = buildIdentificationSchema();
+
+        GenerativeModel structured = ai.generativeModel(MODEL_NAME, configBuilder.build());
+        GenerativeModel text = ai.generativeModel(MODEL_NAME);
+        structuredModel = GenerativeModelFutures.from(structured);
+        textModel = GenerativeModelFutures.from(text);
+    }
+
+    //json schema for the single identification request
+    private static Schema buildIdentificationSchema() {
+        Map<String, Schema> candidate = new HashMap<>();
+        candidate.put(IdentificationParser.KEY_COMMON_NAME, Schema.str());
+        candidate.put(IdentificationParser.KEY_SCIENTIFIC_NAME, Schema.str());
+        candidate.put(IdentificationParser.KEY_CONFIDENCE, Schema.numInt());
+
+        Map<String, Schema> props = new HashMap<>();
+        props.put(IdentificationParser.KEY_COMMON_NAME, Schema.str());
+        props.put(IdentificationParser.KEY_SCIENTIFIC_NAME, Schema.str());
+        props.put(IdentificationParser.KEY_CONFIDENCE, Schema.numInt());
+        props.put(IdentificationParser.KEY_ALTERNATES, Schema.array(Schema.obj(candidate)));
+        props.put(IdentificationParser.KEY_DESCRIPTION, Schema.str());
+        return Schema.obj(props);
+    }
+
+    //identify the plant in the image, the callback runs on a background thread
+    void identify(InferenceImage image, String role, Callback callback) {
+        String prompt =
+                "Identify the plant in this image and fill in every field of the JSON schema. " +
+                        "common_name: the common name of the plant, or \"Unknown plant\" if no plant is visible. " +
+                        "scientific_name: the scientific name (Genus species) as plain text, or empty if unknown. " +
+                        "confidence: integer 0-100 for how confident you are in this identification. " +
+                        "alternates: up to 3 other plausible species, each with common_name, scientific_name " +
+                        "and a confidence integer 0-100; empty array if none. " +
+                        "description: " + buildRolePromptNoFormatting(role, "this plant");
+
+        Content content = new Content.Builder()
+                .addInlineData(image.jpeg, InferenceImage.MIME_TYPE)
+                .addText(prompt)
+                .build();
+
+        Futures.addCallback(structuredModel.generateContent(content), new FutureCallback<GenerateContentResponse>() {
+            @Override public void onSuccess(GenerateContentResponse r) {
+                String raw = (r != null && r.getText() != null) ? r.getText() : "";
+                fillMissingFields(image, role, IdentificationParser.parseStructured(raw), callback);
+            }
+            @Override public void onFailure(Throwable t) {
+                fillMissingFields(image, role, new IdentificationParser.Fields(), callback);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    //identify the plant with a streamed response so names and description show up as they arrive
+    void identifyStreaming(InferenceImage image, String role, StreamListener listener) {
+        String prompt =
+                "Identify the plant in this image. Answer in exactly this line format and nothing else:\n" +
+                        StreamingIdentificationParser.LABEL_COMMON + ": common name, or Unknown plant if no plant is visible\n" +
+                        StreamingIdentificationParser.LABEL_SCIENTIFIC + ": scientific name (Genus species), or empty if unknown\n" +
+                        StreamingIdentificationParser.LABEL_CONFIDENCE + ": integer 0-100 for how confident you are\n" +
+                        StreamingIdentificationParser.LABEL_ALTERNATES + ": JSON array on one line of up to 3 other plausible species, " +
+                        "each {\"common_name\":\"...\",\"scientific_name\":\"Genus species\",\"confidence\":INT0to100}, or []\n" +
+                        StreamingIdentificationParser.LABEL_DESCRIPTION + ":\n" +
+                        "followed by the description. " + buildRolePromptNoFormatting(role, "this plant");
+
+        Content content = new Content.Builder()
+                .addInlineData(image.jpeg, InferenceImage.MIME_TYPE)
+                .addText(prompt)
+                .build();
+
+        StreamingIdentificationParser parser = new StreamingIdentificationParser(listener);
+        Publisher<GenerateContentResponse> stream = textModel.generateContentStream(content);
+        stream.subscribe(new Subscriber<GenerateContentResponse>() {
+            @Override public void onSubscribe(Subscription s) { s.request(Long.MAX_VALUE); }
+            @Override public void onNext(GenerateContentResponse r) {
+                if (r != null && r.getText() != null) parser.feed(r.getText());
+            }
+            @Override public void onError(Throwable t) {
+                //a stream cut off may end mid description, ask again in one piece instead of keeping the partial text
+                identify(image, role, listener);
+            }
+            @Override public void onComplete() {
+                fillMissingFields(image, role, parser.finish(), listener);
+            }
+        });
+    }
+
+    //run the old per-field prompt for each field the structured response got wrong
+    private void fillMissingFields(InferenceImage image, String role, IdentificationParser.Fields f, Callback callback) {
+        if (f.isComplete()) {
+            callback.onResult(toResult(f));
+            return;
+        }
+
+        int missing = 0;
+        if (f.description == null) missing++;
+        if (f.scientificName == null) missing++;
+        if (f.commonName == null) missing++;
+        if (f.confidence == null) missing++;
+        if (f.alternates == null) missing++;
+
+        AtomicInteger pending = new AtomicInteger(missing);
+        Runnable done = () -> {
+            if (pending.decrementAndGet() == 0) callback.onResult(toResult(f));
+        };
+
+        if (f.description == null) {
+            generateTextWithRetry(image, descriptionPrompt(role), 1, cleaned -> {
+                f.description = IdentificationParser.sanitizePlainTextKeepDashes(cleaned);
+                done.run();
+            });
+        }
+
+        if (f.scientificName == null) {
+            generateTextWithRetry(image,
+                    "From this image, what is the scientific name (Genus species) of this plant? " +
+                            "Respond with only the scientific name as plain text, no punctuation or formatting. " +
+                            "Do not include analysis, steps, thoughts, or meta labels.",
+                    1, cleaned -> {
+                        f.scientificName = IdentificationParser.parseScientificNameText(cleaned);
+                        done.run();
+                    });
+        }
+
+        if (f.commonName == null) {
+            generateTextWithRetry(image,
+                    "From this image, return STRICT JSON only with the common name of this plant. " +
+                            "Schema: {\"common_name\":\"...\"}. No prose, no code fences, no analysis, no thoughts.",
+                    1, cleaned -> {
+                        f.commonName = IdentificationParser.parseCommonNameText(cleaned);
+                        done.run();
+                    });
+        }
+
+        if (f.confidence == null) {
+            generateTextWithRetry(image,
+                    "On a scale from 0 to 100, how confident are you in your plant identification from this image? " +
+                            "Respond with only the integer number (0-100), no words, no percent sign. " +
+                            "Do not include analysis, steps, thoughts, or meta labels.",
+                    1, cleaned -> {
+                        f.confidence = IdentificationParser.parseConfidenceText(cleaned);
+                        done.run();
+                    });
+        }
+
+        if (f.alternates == null) {
+            generateTextWithRetry(image,
+                    "Identify up to 3 alternate plausible plant species for this image. " +
+                            "Return STRICT JSON array only, no prose. " +
+                            "Each item must be: {\"common_name\":\"...\",\"scientific_name\":\"Genus species\",\"confidence\":INT0to100}. " +
+                            "Confidence is your reliability score 0-100. If none, return []. " +
+                            "Do not include analysis, steps, thoughts, meta labels, or code fences.",
+                    1, cleaned -> {
+                        String raw = (cleaned == null || cleaned.isEmpty()) ? "[]" : cleaned.trim();
+                        f.alternates = IdentificationParser.parseAlternatesJson(raw);
+                        done.run();
+                    });
+        }
+    }
+
+    //only the description for another role, the plant itself is already identified
+    void describe(InferenceImage image, String role, DescriptionCallback callback) {
+        generateTextWithRetry(image, descriptionPrompt(role), 1,
+                cleaned -> callback.onDescription(IdentificationParser.sanitizePlainTextKeepDashes(cleaned)));
+    }
+
+    private static String descriptionPrompt(String role) {
+        return buildRolePromptNoFormatting(role, "this plant") +
+                " Never output lines starting with THOUGHT:, THOUGHTS:, ANALYSIS:, REASONING:, or similar. Do not include meta text.";
+    }
+
+    private static PlantIdentification toResult(IdentificationParser.Fields f) {
+        return new PlantIdentification(f.commonName, f.scientificName, f.description,
+                f.confidence != null ? f.confidence : 0, f.alternates);
+    }
+
+    //retries if the response looks like a thought
+    private void generateTextWithRetry(InferenceImage image, String prompt, int maxRetries, OnText onText) {
+        Content content = new Content.Builder()
+                .addInlineData(image.jpeg, InferenceImage.MIME_TYPE)
+                .addText(prompt)
+                .build();
+        generateTextWithRetry(content, maxRetries, onText);
+    }
+
+    private void generateTextWithRetry(Content content, int maxRetries, OnText onText) {
+        Executor cb = MoreExecutors.directExecutor();
+        ListenableFuture<GenerateContentResponse> fut = textModel.generateContent(content);
+        Futures.addCallback(fut, new FutureCallback<GenerateContentResponse>() {
+            @Override public void onSuccess(GenerateContentResponse r) {
+                String raw = (r != null && r.getText() != null) ? r.getText() : "";
+                if (IdentificationParser.startsWithLeak(raw) && maxRetries > 0) {
+                    generateTextWithRetry(content, maxRetries - 1, onText);
+                    return;
+                }
+                String cleaned = IdentificationParser.stripThoughtPreamble(raw);
+                onText.accept(cleaned);
+            }
+            @Override public void onFailure(Throwable t) { onText.accept(""); }
+        }, cb);
+    }
+
+    //prompts for specific roles
+    static String buildRolePromptNoFormatting(String roleRaw, String plantNameHint) {
+        String role = (roleRaw == null) ? "" : roleRaw.trim().toLowerCase();
+        String baseRule =
+                "Write final answer only. Do NOT include analysis, steps, thoughts, or reasoning. " +
+                        "Never output lines starting with THOUGHT:, THOUGHTS:, ANALYSIS:, REASONING:, or similar. " +
+                        "Plain text only. Use greater than (>) to denote each point; one point per line. " +
+                        "Keep under 100 words total. ";
+
+        switch (role) {
+            case "hiker":
+                return baseRule + "From the provided image of a plant, write a concise field-guide entry " +
+                        "for a hiker (one line per point). Focus on habitat, identifying features, seasonality, " +
+                        "elevation, and safety notes about toxic or similar-looking plants.";
+            case "chef":
+                return baseRule + "From the provided image of a plant, write a culinary summary for a chef " +
+                        "(one line per point). Focus on edible parts, flavor, aroma, seasonal availability, " +
+                        "texture, preparation methods, and ideal pairings.";
+            case "gardener":
+                return baseRule + "From the provided image of a plant, write a horticultural overview for a gardener " +
+                        "(one line per point). Cover light requirements, soil, watering, propagation, and common pests/diseases.";
+            default:
+                return baseRule + "From the provided image, write an encyclopedia-style summary of the plant " +
+                        "(one line per point), describing appearance, natural habitat, and uses.";
+        }
+    }
+}
@@ -14,27 +14,29 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -45,16 +47,30 @@ public class SettingsActivity extends AppCompatActivity {
     private TextView plantCounterText;
     private TextView plantRankingText;
     private ProgressBar rankProgressBar;
-    private ListView historyListView;
+    private RecyclerView historyRecyclerView;
     private ListView friendsListView;
     private TextView friendRequestBadge;
 
     private TextView historyEmptyText;
     private TextView friendsEmptyText;
 
-    //history
-    private final List<PlantCapture> historyItems = new ArrayList<>();
-    private HistoryAdapter historyAdapter;
+    //history, loaded a page at a time
+    private CaptureHistoryAdapter historyAdapter;
+    private CaptureHistoryPager historyPager;
+    //captureSummaries, or captures for an account that has no summaries yet
+    private CollectionReference historyCollection;
+    private int plantCount = 0;
+    private Button clearHistoryBtn;
+
+    //the detail screen reports a delete back, the list then drops that row instead of reloading
+    private final ActivityResultLauncher<Intent> historyItemLauncher = registerForActivityResult(
+            new ActivityResultContracts.StartActivityForResult(), result -> {
+                if (result.getResultCode() != RESULT_OK || result.getData() == null) return;
+                String deleted = result.getData().getStringExtra(HistoryDescriptionActivity.EXTRA_DELETED_DOC_ID);
+                if (deleted == null) return;
+                historyPager.remove(deleted);
+                updatePlantStats(Math.max(0, plantCount - 1));
+            });
 
     //friends list (bottom of screen)
     private final List<FriendItem> friendItems = new ArrayList<>();
@@ -114,14 +130,13 @@ public class SettingsActivity extends AppCompatActivity {
         plantCounterText   = findViewById(R.id.PlantCounterText);
         plantRankingText   = findViewById(R.id.PlantRankingText);
         rankProgressBar    = findViewById(R.id.RankProgressBar);
-        historyListView    = findViewById(R.id.listView);
+        historyRecyclerView = findViewById(R.id.listView);
         friendsListView    = findViewById(R.id.friendsListView);
         friendRequestBadge = findViewById(R.id.friendRequestBadge);
 
         historyEmptyText   = findViewById(R.id.historyEmptyText);
         friendsEmptyText   = findViewById(R.id.friendsEmptyText);
 
-        historyListView.setEmptyView(historyEmptyText);
         friendsListView.setEmptyView(friendsEmptyText);
 
         Button logoutBtn = findViewById(R.id.LogoutButton);
@@ -134,29 +149,28 @@ public class SettingsActivity extends AppCompatActivity {
             finish();
         });
 
-        Button clearHistoryBtn = findViewById(R.id.ClearHistoryButton);
+        clearHistoryBtn = findViewById(R.id.ClearHistoryButton);
         clearHistoryBtn.setOnClickListener(v -> clearHistory());
 
-        historyAdapter = new HistoryAdapter(historyItems);
-        historyListView.setAdapter(historyAdapter);
+        setupHistoryList();
 
         friendAdapter = new FriendAdapter(friendItems);
         friendsListView.setAdapter(friendAdapter);
 
-        loadUsername();
+        //loaded once, coming back from a capture keeps the list where it was
+        loadProfile();
     }
 
 
     @Override
     protected void onResume() {
         super.onResume();
-        loadHistory();
         loadFriends();
         loadFriendRequestCounts();
     }
 
-    //load the username from the user
-    private void loadUsername() {
+    //load the username, plant count and history from the user document
+    private void loadProfile() {
         db.collection("users").document(currentUid).get()
                 .addOnSuccessListener(doc -> {
                     if (doc.exists()) {
@@ -165,6 +179,13 @@ public class SettingsActivity extends AppCompatActivity {
                     } else {
                         usernameDisplay.setText("No user data found");
                     }
+
+                    long count = CaptureRepository.captureCountOf(doc);
+                    if (count >= 0) updatePlantStats((int) count);
+                    else backfillPlantCount();
+
+                    loadHistory(CaptureRepository.listCollection(doc));
+                    if (!CaptureRepository.hasSummaries(doc)) CaptureRepository.backfillSummaries(currentUid);
                 })
                 .addOnFailureListener(e -> {
                     usernameDisplay.setText("Failed to load username");
@@ -172,52 +193,66 @@ public class SettingsActivity extends AppCompatActivity {
                 });
     }
 
-    //load the captures the user has taken
-    private void loadHistory() {
-        db.collection("users")
-                .document(currentUid)
-                .collection("captures")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .get()
-                .addOnSuccessListener(qs -> {
-                    historyItems.clear();
-                    for (QueryDocumentSnapshot doc : qs) {
-                        String docId = doc.getId();
-                        String imageUrl = doc.getString("url");
-                        String role = doc.getString("role");
-                        String commonName = doc.getString("commonName");
-                        String dateTime = doc.getString("dateTime");
-                        String scientificName = doc.getString("scientificName");
-                        String description = doc.getString("description");
-                        Long confLong = doc.getLong("confidence");
-                        int confidence = Math.toIntExact(confLong != null ? confLong : 0);
-                        Long tsLong = doc.getLong("timestamp");
-                        long timestamp = tsLong != null ? tsLong : 0L;
-
-                        if (imageUrl == null) continue;
-
-                        historyItems.add(new PlantCapture(
-                                docId,
-                                imageUrl,
-                                role != null ? role : "Hiker",
-                                commonName,
-                                dateTime,
-                                scientificName,
-                                description,
-                                confidence,
-                                timestamp
-                        ));
-                    }
-                    historyAdapter.notifyDataSetChanged();
-                    updatePlantStats(historyItems.size());
-                })
+    //recycled, paged history list
+    private void setupHistoryList() {
+        historyRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        historyRecyclerView.addItemDecoration(CaptureHistoryAdapter.divider(this));
+
+        int thumbSizePx = Math.round(48 * getResources().getDisplayMetrics().density);
+        historyAdapter = new CaptureHistoryAdapter(ThumbnailCache.get(this), thumbSizePx, this::openHistoryItem);
+        historyRecyclerView.setAdapter(historyAdapter);
+
+        historyPager = new CaptureHistoryPager(new CaptureHistoryPager.Listener() {
+            @Override
+            public void onItems(List<CaptureHistoryItem> items, boolean endReached) {
+                historyAdapter.submitList(items);
+                historyEmptyText.setVisibility(items.isEmpty() && endReached ? View.VISIBLE : View.GONE);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(SettingsActivity.this, "Failed to load plant history: " + e.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+        historyPager.attachTo(historyRecyclerView);
+    }
+
+    //open a capture from the history, the user's own so it can be deleted there
+    private void openHistoryItem(CaptureHistoryItem item) {
+        Intent intent = new Intent(SettingsActivity.this, HistoryDescriptionActivity.class);
+        intent.putExtra("docId", item.docId);
+        intent.putExtra("userRole", item.role);
+        intent.putExtra("imageUrl", item.imageUrl);
+        intent.putExtra("thumbUrl", item.thumbUrl);
+        intent.putExtra("commonName", item.commonName);
+        intent.putExtra("scientificName", item.scientificName);
+        intent.putExtra("description", item.description);
+        intent.putExtra("confidence", item.confidence);
+        intent.putExtra("dateTime", item.dateTime);
+        intent.putExtra("ownerUid", currentUid);
+        intent.putExtra("allowDelete", true);
+        historyItemLauncher.launch(intent);
+    }
+
+    //load the first page of captures the user has taken, later pages load as the list scrolls
+    private void loadHistory(CollectionReference collection) {
+        historyCollection = collection;
+        historyPager.refresh(collection.orderBy("timestamp", Query.Direction.DESCENDING));
+    }
+
+    //account from before the count was kept on the user document, count once and store it
+    private void backfillPlantCount() {
+        CaptureRepository.backfillCaptureCount(currentUid)
+                .addOnSuccessListener(count -> updatePlantStats(count.intValue()))
                 .addOnFailureListener(e ->
-                        Toast.makeText(this, "Failed to load plant history: " + e.getMessage(),
+                        Toast.makeText(this, "Failed to load plant count: " + e.getMessage(),
                                 Toast.LENGTH_SHORT).show());
     }
 
     //update the number of identified plants in the user profile
     private void updatePlantStats(int count) {
+        plantCount = count;
         plantCounterText.setText("You've identified " + count + " plants!");
 
         String rank;
@@ -246,115 +281,57 @@ public class SettingsActivity extends AppCompatActivity {
 
     //clears the user's history of plant captures
     private void clearHistory() {
-        if (historyItems.isEmpty()) {
+        if (historyCollection == null || historyAdapter.getItemCount() == 0) {
             Toast.makeText(this, "No history to clear", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        for (PlantCapture item : historyItems) {
-            db.collection("users")
-                    .document(currentUid)
-                    .collection("captures")
-                    .document(item.docId)
-                    .delete();
-        }
-        historyItems.clear();
-        historyAdapter.notifyDataSetChanged();
-        updatePlantStats(0);
-        Toast.makeText(this, "History cleared", Toast.LENGTH_SHORT).show();
-    }
-
-    //model for plant capture in profile history list
-    private static class PlantCapture {
-        final String docId;
-        final String imageUrl;
-        final String role;
-        final String commonName;
-        final String dateTime;
-        final String scientificName;
-        final String description;
-        final int confidence;
-        final long timestamp;
-
-        PlantCapture(String docId,
-                     String imageUrl,
-                     String role,
-                     String commonName,
-                     String dateTime,
-                     String scientificName,
-                     String description,
-                     int confidence,
-                     long timestamp) {
-            this.docId = docId;
-            this.imageUrl = imageUrl;
-            this.role = role;
-            this.commonName = commonName;
-            this.dateTime = dateTime;
-            this.scientificName = scientificName;
-            this.description = description;
-            this.confidence = confidence;
-            this.timestamp = timestamp;
-        }
-    }
-
-    //adapter for the capture history list
-    private class HistoryAdapter extends ArrayAdapter<PlantCapture> {
-        private final LayoutInflater inflater = LayoutInflater.from(SettingsActivity.this);
-        private final SimpleDateFormat sdf =
-                new SimpleDateFormat("yyyy/MM/dd HH:mm", Locale.getDefault());
+        //kept to put back if the clear fails
+        List<CaptureHistoryItem> previousItems = historyAdapter.getCurrentList();
+        int previousCount = plantCount;
 
-        HistoryAdapter(List<PlantCapture> items) {
-            super(SettingsActivity.this, 0, items);
-        }
-
-        @Override
-        public View getView(int position, View convertView, ViewGroup parent) {
-            View row = convertView;
-            if (row == null) {
-                row = inflater.inflate(R.layout.item_history_capture, parent, false);
+        historyAdapter.submitList(null);
+        historyEmptyText.setVisibility(View.VISIBLE);
+        updatePlantStats(0);
+        clearHistoryBtn.setEnabled(false);
+
+        AlertDialog progressDialog = new AlertDialog.Builder(this)
+                .setTitle("Clearing history")
+                .setMessage("Deleting captures...")
+                .setCancelable(false)
+                .show();
+
+        new CaptureBulkDeleter(currentUid, historyCollection, new CaptureBulkDeleter.Listener() {
+            @Override
+            public void onProgress(int deleted, int total) {
+                if (isDestroyed()) return;
+                progressDialog.setMessage("Deleted " + deleted + " of " + total + " captures");
             }
 
-            TextView titleTv = row.findViewById(R.id.historyTitle);
-            TextView dateTv  = row.findViewById(R.id.historyDate);
+            @Override
+            public void onComplete(int deleted) {
+                if (isDestroyed()) return;
+                progressDialog.dismiss();
+                clearHistoryBtn.setEnabled(true);
+                Toast.makeText(SettingsActivity.this, "History cleared", Toast.LENGTH_SHORT).show();
+            }
 
-            PlantCapture item = getItem(position);
-            if (item != null) {
-                String name = (item.commonName != null && !item.commonName.isEmpty())
-                        ? item.commonName : "Unknown Plant";
-                String role = (item.role != null && !item.role.isEmpty())
-                        ? item.role : "Unknown Role";
-
-                titleTv.setText(name + " · " + role);
-                dateTv.setText(formatDate(item));
-
-                row.setOnClickListener(v -> {
-                    Intent intent = new Intent(SettingsActivity.this, HistoryDescriptionActivity.class);
-                    intent.putExtra("docId", item.docId);
-                    intent.putExtra("userRole", item.role);
-                    intent.putExtra("imageUrl", item.imageUrl);
-                    intent.putExtra("commonName", item.commonName);
-                    intent.putExtra("scientificName", item.scientificName);
-                    intent.putExtra("description", item.description);
-                    intent.putExtra("confidence", item.confidence);
-                    intent.putExtra("dateTime", item.dateTime);
-                    intent.putExtra("allowDelete", true);
-                    startActivity(intent);
-                });
+            @Override
+            public void onFailure(Exception e, int deleted) {
+                if (isDestroyed()) return;
+                progressDialog.dismiss();
+                clearHistoryBtn.setEnabled(true);
 
-            }
-            return row;
-        }
+                //some batches may have gone through, show the old state and then reload what is really left
+                historyAdapter.submitList(previousItems);
+                historyEmptyText.setVisibility(previousItems.isEmpty() ? View.VISIBLE : View.GONE);
+                updatePlantStats(previousCount);
+                loadProfile();
 
-        //format date
-        private String formatDate(PlantCapture item) {
-            if (item.timestamp > 0L) {
-                return sdf.format(new Date(item.timestamp));
+                Toast.makeText(SettingsActivity.this, "Failed to clear history: " + e.getMessage(),
+                        Toast.LENGTH_SHORT).show();
             }
-            if (item.dateTime != null && !item.dateTime.isEmpty()) {
-                return item.dateTime;
-            }
-            return "";
-        }
+        }).start();
     }
 
     //friend list item model
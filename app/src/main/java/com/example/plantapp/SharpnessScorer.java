@@ -0,0 +1,52 @@
+package com.example.plantapp;
+
+import android.graphics.Bitmap;
+
+//focus measure for a frame: variance of the laplacian over a small luma plane, higher is sharper
+final class SharpnessScorer {
+
+    //long edge the frame is decoded down to before scoring
+    private static final int SCORE_EDGE_PX = 160;
+
+    private SharpnessScorer() {}
+
+    //score a jpeg, returns -1 if it can't be decoded
+    static double score(byte[] jpeg) {
+        //a new frame arrives several times a second, the pool keeps this from allocating each time
+        Bitmap bitmap = BitmapDecoder.decode(jpeg, SCORE_EDGE_PX, 0);
+        if (bitmap == null) return -1;
+
+        int w = bitmap.getWidth();
+        int h = bitmap.getHeight();
+        int[] pixels = new int[w * h];
+        bitmap.getPixels(pixels, 0, w, 0, 0, w, h);
+        BitmapDecoder.release(bitmap);
+
+        for (int i = 0; i < pixels.length; i++) {
+            int p = pixels[i];
+            pixels[i] = (((p >> 16) & 0xFF) * 299 + ((p >> 8) & 0xFF) * 587 + (p & 0xFF) * 114) / 1000;
+        }
+        return laplacianVariance(pixels, w, h);
+    }
+
+    //variance of the 4-neighbour laplacian over the interior pixels of a luma plane
+    static double laplacianVariance(int[] luma, int w, int h) {
+        if (w < 3 || h < 3) return 0;
+
+        double sum = 0;
+        double sumSq = 0;
+        int n = 0;
+        for (int y = 1; y < h - 1; y++) {
+            int row = y * w;
+            for (int x = 1; x < w - 1; x++) {
+                int i = row + x;
+                int lap = 4 * luma[i] - luma[i - 1] - luma[i + 1] - luma[i - w] - luma[i + w];
+                sum += lap;
+                sumSq += (double) lap * lap;
+                n++;
+            }
+        }
+        double mean = sum / n;
+        return sumSq / n - mean * mean;
+    }
+}
@@ -181,6 +181,10 @@ public class SignupActivity extends AppCompatActivity {
         userData.put("username", username);
         userData.put("email", email);
         userData.put("createdAt", FieldValue.serverTimestamp());
+        //new accounts start with the capture count and list summaries in place
+        userData.put(CaptureRepository.CAPTURE_COUNT, 0L);
+        userData.put(CaptureRepository.CAPTURE_COUNT_READY, true);
+        userData.put(CaptureRepository.SUMMARIES_READY, true);
 
         db.collection("users")
                 .document(uid)
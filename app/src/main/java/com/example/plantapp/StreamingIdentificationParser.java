@@ -0,0 +1,125 @@
+package com.example.plantapp;
+
+import java.util.Locale;
+
+//parses the line based streaming identification response as chunks arrive
+//the model is asked for:
+//  COMMON: ...
+//  SCIENTIFIC: ...
+//  CONFIDENCE: ...
+//  ALTERNATES: [...]
+//  DESCRIPTION:
+//  > point
+class StreamingIdentificationParser {
+
+    static final String LABEL_COMMON      = "COMMON";
+    static final String LABEL_SCIENTIFIC  = "SCIENTIFIC";
+    static final String LABEL_CONFIDENCE  = "CONFIDENCE";
+    static final String LABEL_ALTERNATES  = "ALTERNATES";
+    static final String LABEL_DESCRIPTION = "DESCRIPTION";
+
+    //called as soon as each piece is parsed
+    interface Listener {
+        void onCommonName(String commonName);
+        void onScientificName(String scientificName);
+        void onDescriptionProgress(String descriptionSoFar);
+    }
+
+    private final Listener listener;
+    private final IdentificationParser.Fields fields = new IdentificationParser.Fields();
+
+    private final StringBuilder pendingLine = new StringBuilder();
+    private final StringBuilder description = new StringBuilder();
+    private boolean inDescription = false;
+
+    StreamingIdentificationParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    //feed the next streamed chunk of text
+    void feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) return;
+
+        if (inDescription) {
+            appendDescription(chunk);
+            return;
+        }
+
+        pendingLine.append(chunk);
+        int nl;
+        while (!inDescription && (nl = pendingLine.indexOf("\n")) >= 0) {
+            String line = pendingLine.substring(0, nl);
+            pendingLine.delete(0, nl + 1);
+            handleHeaderLine(line);
+        }
+
+        //anything left after the description label is already description text
+        if (inDescription && pendingLine.length() > 0) {
+            String rest = pendingLine.toString();
+            pendingLine.setLength(0);
+            appendDescription(rest);
+        }
+    }
+
+    //call once the stream is complete, fields that failed validation are left null
+    IdentificationParser.Fields finish() {
+        if (!inDescription && pendingLine.length() > 0) {
+            String line = pendingLine.toString();
+            pendingLine.setLength(0);
+            handleHeaderLine(line);
+        }
+        if (description.length() > 0) {
+            fields.description = IdentificationParser.validDescription(description.toString());
+        }
+        return fields;
+    }
+
+    private void handleHeaderLine(String rawLine) {
+        String line = ModelOutputSanitizer.stripMarkdown(rawLine);
+        int colon = line.indexOf(':');
+        if (colon <= 0) return;
+
+        String label = line.substring(0, colon).trim().toUpperCase(Locale.ROOT);
+        String value = line.substring(colon + 1).trim();
+
+        switch (label) {
+            case LABEL_COMMON:
+                fields.commonName = IdentificationParser.validCommonName(value);
+                if (fields.commonName != null) listener.onCommonName(fields.commonName);
+                break;
+            case LABEL_SCIENTIFIC:
+                fields.scientificName = IdentificationParser.validScientificName(value);
+                if (fields.scientificName != null) listener.onScientificName(fields.scientificName);
+                break;
+            case LABEL_CONFIDENCE:
+                if (containsDigit(value)) {
+                    fields.confidence = IdentificationParser.clamp0to100(IdentificationParser.extractFirstInt(value));
+                }
+                break;
+            case LABEL_ALTERNATES:
+                fields.alternates = IdentificationParser.validAlternates(value);
+                break;
+            case LABEL_DESCRIPTION:
+                inDescription = true;
+                if (!value.isEmpty()) appendDescription(value);
+                break;
+            default:
+                //leaked thoughts or anything else the model adds before the labels
+                break;
+        }
+    }
+
+    private static boolean containsDigit(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') return true;
+        }
+        return false;
+    }
+
+    private void appendDescription(String text) {
+        description.append(text);
+        String preview = IdentificationParser.formatPoints(ModelOutputSanitizer.stripMarkdown(description.toString()));
+        if (!preview.isEmpty()) listener.onDescriptionProgress(preview);
+    }
+}
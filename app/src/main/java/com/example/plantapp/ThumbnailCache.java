@@ -0,0 +1,222 @@
+package com.example.plantapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import com.google.firebase.storage.FileDownloadTask;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageReference;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//two level cache for capture thumbnails: decoded bitmaps in memory, downloaded files on disk
+//disk entries are keyed by storage path and tagged with the object generation, checked once per process
+final class ThumbnailCache {
+
+    static final String MEMORY_HIT = "thumb_memory_hit";
+    static final String DISK_HIT = "thumb_disk_hit";
+    static final String MISS = "thumb_miss";
+
+    private static final long MAX_MEMORY_BYTES = 32L * 1024L * 1024L;
+    private static final long MAX_DISK_BYTES = 48L * 1024L * 1024L;
+    private static final String DIR_NAME = "thumbs";
+
+    //called on the main thread
+    interface Callback {
+        void onBitmap(Bitmap bitmap);
+    }
+
+    //a pending load, cancel when the view it was for goes away
+    static final class Request {
+        private volatile boolean cancelled = false;
+        private volatile FileDownloadTask download;
+
+        void cancel() {
+            cancelled = true;
+            FileDownloadTask d = download;
+            if (d != null && !d.isComplete()) d.cancel();
+        }
+    }
+
+    private static ThumbnailCache instance;
+
+    private final LruCache<String, Bitmap> memory;
+    private final File dir;
+    private final ExecutorService worker = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    //storage paths whose disk entry was already checked against the server in this process
+    private final Set<String> validated = Collections.synchronizedSet(new HashSet<>());
+
+    private ThumbnailCache(Context context) {
+        int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, MAX_MEMORY_BYTES);
+        memory = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        dir = new File(context.getApplicationContext().getCacheDir(), DIR_NAME);
+        dir.mkdirs();
+    }
+
+    static synchronized ThumbnailCache get(Context context) {
+        if (instance == null) instance = new ThumbnailCache(context);
+        return instance;
+    }
+
+    //hit/miss counters since the process started
+    static long memoryHits() { return PerfMetrics.get(MEMORY_HIT); }
+    static long diskHits() { return PerfMetrics.get(DISK_HIT); }
+    static long misses() { return PerfMetrics.get(MISS); }
+
+    //load the image at a storage download url, decoded so both edges are about targetPx or more
+    //a memory hit calls back before this returns
+    Request load(String url, int targetPx, Callback callback) {
+        Request request = new Request();
+        StorageReference ref;
+        try {
+            ref = FirebaseStorage.getInstance().getReferenceFromUrl(url);
+        } catch (Exception e) {
+            // invalid URL - nothing to load
+            return request;
+        }
+
+        String path = ref.getPath();
+        String memoryKey = path + "@" + targetPx;
+        Bitmap cached = memory.get(memoryKey);
+        if (cached != null) {
+            PerfMetrics.increment(MEMORY_HIT);
+            callback.onBitmap(cached);
+            return request;
+        }
+
+        worker.execute(() -> loadFromDisk(ref, memoryKey, targetPx, request, callback));
+        return request;
+    }
+
+    //runs on the worker
+    private void loadFromDisk(StorageReference ref, String memoryKey, int targetPx, Request request, Callback callback) {
+        if (request.cancelled) return;
+
+        String path = ref.getPath();
+        File file = findDiskEntry(path);
+        if (file != null) {
+            Bitmap bitmap = BitmapDecoder.decode(file, targetPx, targetPx);
+            if (bitmap != null) {
+                PerfMetrics.increment(DISK_HIT);
+                file.setLastModified(System.currentTimeMillis());
+                memory.put(memoryKey, bitmap);
+                deliver(request, callback, bitmap);
+                if (validated.add(path)) revalidate(ref, file, memoryKey, targetPx, request, callback);
+                return;
+            }
+            file.delete();
+        }
+
+        PerfMetrics.increment(MISS);
+        download(ref, memoryKey, targetPx, request, callback);
+    }
+
+    //refetch the entry if the object was replaced since it was cached
+    private void revalidate(StorageReference ref, File file, String memoryKey, int targetPx,
+                            Request request, Callback callback) {
+        ref.getMetadata().addOnSuccessListener(worker, metadata -> {
+            if (generationOf(file).equals(metadata.getGeneration())) return;
+            file.delete();
+            memory.remove(memoryKey);
+            download(ref, memoryKey, targetPx, request, callback);
+        });
+    }
+
+    //metadata for the generation, then the file itself into the disk cache
+    private void download(StorageReference ref, String memoryKey, int targetPx, Request request, Callback callback) {
+        if (request.cancelled) return;
+        String key = keyFor(ref.getPath());
+
+        ref.getMetadata().addOnSuccessListener(worker, metadata -> {
+            if (request.cancelled) return;
+            String generation = metadata.getGeneration() != null ? metadata.getGeneration() : "0";
+            File tmp = new File(dir, key + "." + System.nanoTime() + ".tmp");
+            File target = new File(dir, key + "_" + generation);
+
+            FileDownloadTask task = ref.getFile(tmp);
+            request.download = task;
+            task.addOnSuccessListener(worker, snapshot -> {
+                deleteEntries(key);
+                if (!tmp.renameTo(target)) return;
+                trimDisk();
+                if (request.cancelled) return;
+
+                Bitmap bitmap = BitmapDecoder.decode(target, targetPx, targetPx);
+                if (bitmap == null) return;
+                memory.put(memoryKey, bitmap);
+                validated.add(ref.getPath());
+                deliver(request, callback, bitmap);
+            }).addOnFailureListener(worker, e -> tmp.delete());
+        });
+    }
+
+    private void deliver(Request request, Callback callback, Bitmap bitmap) {
+        mainHandler.post(() -> {
+            if (!request.cancelled) callback.onBitmap(bitmap);
+        });
+    }
+
+    //disk entries are named {key}_{generation}
+    private File findDiskEntry(String path) {
+        String prefix = keyFor(path) + "_";
+        File[] files = dir.listFiles((d, name) -> name.startsWith(prefix));
+        return files != null && files.length > 0 ? files[0] : null;
+    }
+
+    private void deleteEntries(String key) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(key + "_"));
+        if (files == null) return;
+        for (File f : files) f.delete();
+    }
+
+    private static String generationOf(File file) {
+        String name = file.getName();
+        return name.substring(name.indexOf('_') + 1);
+    }
+
+    //drop the least recently used files once the disk cache is over its budget
+    private synchronized void trimDisk() {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total <= MAX_DISK_BYTES) return;
+
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : files) {
+            if (total <= MAX_DISK_BYTES) break;
+            total -= f.length();
+            f.delete();
+        }
+    }
+
+    //sha-1 of the storage path, safe as a file name
+    private static String keyFor(String path) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(path.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(path.hashCode());
+        }
+    }
+}
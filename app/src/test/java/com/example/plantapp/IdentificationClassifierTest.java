@@ -0,0 +1,100 @@
+package com.example.plantapp;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IdentificationClassifierTest {
+
+    @Test
+    public void classify_matchesDataset() throws IOException {
+        int rows = 0;
+        for (String[] row : loadDataset()) {
+            IdentificationClassifier.Verdict expected = IdentificationClassifier.Verdict.valueOf(row[0]);
+            String description = row[3].replace("\\n", "\n");
+            assertEquals(row[2] + ": " + description, expected,
+                    IdentificationClassifier.classify(description, row[2], Integer.parseInt(row[1])));
+            rows++;
+        }
+        assertTrue(rows > 0);
+    }
+
+    @Test
+    public void classify_confidenceThreshold() {
+        String description = "Opposite leaves with five lobes";
+        assertEquals(IdentificationClassifier.Verdict.IDENTIFIED_OK,
+                IdentificationClassifier.classify(description, "Sugar maple", IdentificationClassifier.MIN_CONFIDENCE));
+        assertEquals(IdentificationClassifier.Verdict.UNKNOWN,
+                IdentificationClassifier.classify(description, "Sugar maple", IdentificationClassifier.MIN_CONFIDENCE - 1));
+    }
+
+    @Test
+    public void classify_handlesNull() {
+        assertEquals(IdentificationClassifier.Verdict.IDENTIFIED_OK, IdentificationClassifier.classify(null, null, 90));
+    }
+
+    @Test
+    public void phraseMatcher_reportsWholeWordsWithClause() {
+        PhraseMatcher matcher = new PhraseMatcher.Builder()
+                .add("toxic", 1)
+                .add("non-toxic", 2)
+                .add("toxic plant", 3)
+                .build();
+        List<String> found = new ArrayList<>();
+        matcher.match("Toxicology: a NON  toxic plant. Toxic!", (tag, clause) -> found.add(tag + "@" + clause));
+
+        //"Toxicology" is not a whole word, "toxic" inside "non toxic" and "toxic plant" both are
+        assertTrue(found.contains("2@1"));
+        assertTrue(found.contains("1@1"));
+        assertTrue(found.contains("3@1"));
+        assertTrue(found.contains("1@2"));
+        assertEquals(4, found.size());
+    }
+
+    @Test
+    public void phraseMatcher_overlappingPhrases() {
+        PhraseMatcher matcher = new PhraseMatcher.Builder()
+                .add("he", 1)
+                .add("she", 2)
+                .add("hers", 3)
+                .add("his", 4)
+                .build();
+        List<Integer> found = new ArrayList<>();
+        matcher.match("ushers she hers his", (tag, clause) -> found.add(tag));
+        List<Integer> expected = new ArrayList<>();
+        expected.add(2);
+        expected.add(3);
+        expected.add(4);
+        assertEquals(expected, found);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void phraseMatcher_rejectsPunctuation() {
+        new PhraseMatcher.Builder().add("toxic.", 1);
+    }
+
+    private List<String[]> loadDataset() throws IOException {
+        InputStream in = getClass().getClassLoader().getResourceAsStream("classifier_dataset.tsv");
+        assertNotNull("classifier_dataset.tsv missing from test resources", in);
+
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] row = line.split("\t", -1);
+                assertEquals(line, 4, row.length);
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
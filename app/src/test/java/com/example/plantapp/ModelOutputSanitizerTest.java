@@ -0,0 +1,148 @@
+package com.example.plantapp;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ModelOutputSanitizerTest {
+
+    //a raw model output from the corpus and its expected plain text
+    private static final class Case {
+        final String name;
+        final String input;
+        final String plain;
+
+        Case(String name, String input, String plain) {
+            this.name = name;
+            this.input = input;
+            this.plain = plain;
+        }
+    }
+
+    @Test
+    public void plainText_matchesCorpus() throws IOException {
+        List<Case> cases = loadCorpus();
+        assertFalse(cases.isEmpty());
+        for (Case c : cases) {
+            assertEquals(c.name, c.plain, ModelOutputSanitizer.plainText(c.input));
+        }
+    }
+
+    @Test
+    public void plainText_isStableOnItsOwnOutput() throws IOException {
+        for (Case c : loadCorpus()) {
+            String once = ModelOutputSanitizer.plainText(c.input);
+            assertEquals(c.name, once, ModelOutputSanitizer.plainText(once));
+            assertFalse(c.name, once.contains("\n"));
+            assertFalse(c.name, once.matches(".*[*_`~].*"));
+        }
+    }
+
+    @Test
+    public void plainText_handlesNullAndCrlf() {
+        assertEquals("", ModelOutputSanitizer.plainText(null));
+        assertEquals("Paper birch > White peeling bark",
+                ModelOutputSanitizer.plainText("THOUGHT: checking the bark\r\nPaper birch > White peeling bark\r\n"));
+    }
+
+    @Test
+    public void stripThoughts_keepsLineBreaks() {
+        assertEquals("Bur oak\nAcorns with fringed caps",
+                ModelOutputSanitizer.stripThoughts("Thinking: lobed leaves\nBur oak\nAcorns with fringed caps"));
+        assertEquals("Yarrow has feathery leaves.",
+                ModelOutputSanitizer.stripThoughts("Yarrow has feathery leaves. Let's think about it"));
+    }
+
+    @Test
+    public void stripMetaLabels_needsColon() {
+        String formatted = "Sumac\n\nPlan: check the berries\n\nPlant it in full sun\n\nThink of it as a shrub";
+        assertEquals("Sumac\n\n\nPlant it in full sun\n\nThink of it as a shrub",
+                ModelOutputSanitizer.stripMetaLabels(formatted));
+    }
+
+    @Test
+    public void stripInstructionEcho_dropsWholeLines() {
+        assertEquals("Blue spruce",
+                ModelOutputSanitizer.stripInstructionEcho("Never output markdown\nBlue spruce\nnoprose"));
+    }
+
+    @Test
+    public void stripMarkdown_keepsEverythingElse() {
+        assertEquals("Big > bold\n\nitalic", ModelOutputSanitizer.stripMarkdown("**Big** > _bold_\n\n`italic`"));
+    }
+
+    @Test
+    public void startsWithLeak() {
+        assertTrue(ModelOutputSanitizer.startsWithLeak("  THOUGHT: maybe an oak"));
+        assertTrue(ModelOutputSanitizer.startsWithLeak("reasoning about the leaves"));
+        assertTrue(ModelOutputSanitizer.startsWithLeak("```json\nTHOUGHTS here"));
+        assertTrue(ModelOutputSanitizer.startsWithLeak("```thinking"));
+        assertTrue(ModelOutputSanitizer.startsWithLeak("Lets   think about it"));
+        assertTrue(ModelOutputSanitizer.startsWithLeak("Chain of thought: first"));
+        assertFalse(ModelOutputSanitizer.startsWithLeak("Plantain"));
+        assertFalse(ModelOutputSanitizer.startsWithLeak("Common reed, THOUGHT to be invasive"));
+        assertFalse(ModelOutputSanitizer.startsWithLeak("```json\n{\"common_name\":\"Oak\"}"));
+        assertFalse(ModelOutputSanitizer.startsWithLeak(null));
+    }
+
+    @Test
+    public void isMetaLabel() {
+        assertTrue(ModelOutputSanitizer.isMetaLabel("Analysis : leaves"));
+        assertTrue(ModelOutputSanitizer.isMetaLabel("REFLECTION:"));
+        assertFalse(ModelOutputSanitizer.isMetaLabel("Analysis of the leaves"));
+        assertFalse(ModelOutputSanitizer.isMetaLabel("Reason: not a meta label"));
+    }
+
+    @Test
+    public void extractFirstInt() {
+        assertEquals(85, ModelOutputSanitizer.extractFirstInt("Confidence: 85%"));
+        assertEquals(123, ModelOutputSanitizer.extractFirstInt("1234"));
+        assertEquals(7, ModelOutputSanitizer.extractFirstInt("about 7 or 8"));
+        assertEquals(0, ModelOutputSanitizer.extractFirstInt("high"));
+        assertEquals(0, ModelOutputSanitizer.extractFirstInt(null));
+    }
+
+    private List<Case> loadCorpus() throws IOException {
+        InputStream in = getClass().getClassLoader().getResourceAsStream("model_outputs.txt");
+        assertNotNull("model_outputs.txt missing from test resources", in);
+
+        List<Case> cases = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String name = null;
+            StringBuilder input = new StringBuilder();
+            StringBuilder expected = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("=== ")) {
+                    if (name != null) cases.add(toCase(name, input, expected));
+                    name = line.substring(4).trim();
+                    input.setLength(0);
+                    expected = null;
+                } else if (name == null) {
+                    //header comments
+                } else if (line.equals("--- plain")) {
+                    expected = new StringBuilder();
+                } else if (expected != null) {
+                    expected.append(line).append('\n');
+                } else {
+                    input.append(line).append('\n');
+                }
+            }
+            if (name != null) cases.add(toCase(name, input, expected));
+        }
+        return cases;
+    }
+
+    private static Case toCase(String name, StringBuilder input, StringBuilder expected) {
+        assertNotNull(name + " has no expected output", expected);
+        return new Case(name, input.toString(), expected.toString().trim());
+    }
+}
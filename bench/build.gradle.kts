@@ -0,0 +1,40 @@
+// JMH benchmarks for the per-identification text work, run with ./gradlew :bench:jmh
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// the benchmarked classes are plain java, compiled straight from the app sources
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/plantapp/ModelOutputSanitizer.java",
+                "com/example/plantapp/IdentificationParser.java",
+                "com/example/plantapp/PlantIdentification.java",
+                "com/example/plantapp/IdentificationClassifier.java",
+                "com/example/plantapp/PhraseMatcher.java",
+                "com/example/plantapp/CaptureDates.java"
+            )
+        }
+    }
+}
+
+dependencies {
+    // part of android, a library on the jvm
+    implementation(libs.org.json)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+}
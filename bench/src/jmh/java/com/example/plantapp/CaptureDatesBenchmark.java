@@ -0,0 +1,43 @@
+package com.example.plantapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+//date text for one page of history rows
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CaptureDatesBenchmark {
+
+    //same as CaptureHistoryPager.PAGE_SIZE
+    private static final int ROWS = 20;
+
+    private final long[] timestamps = new long[ROWS];
+    private CaptureDates dates;
+
+    @Setup
+    public void setUp() {
+        dates = new CaptureDates(Locale.US, TimeZone.getTimeZone("America/Toronto"));
+        //captures a few hours apart, newest first like the list
+        long t = 1_760_000_000_000L;
+        for (int i = 0; i < ROWS; i++) {
+            timestamps[i] = t;
+            t -= 3L * 60L * 60L * 1000L + i * 61_000L;
+        }
+    }
+
+    @Benchmark
+    public void formatPage(Blackhole bh) {
+        for (long timestamp : timestamps) bh.consume(dates.format(timestamp, null));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.plantapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+//toxicity and non-plant verdicts for the formatted descriptions of the corpus
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClassificationBenchmark {
+
+    private String[] formatted;
+    private String[] commonNames;
+
+    @Setup
+    public void setUp() {
+        String[] structured = ResponseCorpus.structured();
+        String[] descriptions = ResponseCorpus.descriptions();
+        formatted = new String[structured.length + descriptions.length];
+        commonNames = new String[formatted.length];
+
+        int i = 0;
+        for (String raw : structured) {
+            IdentificationParser.Fields f = IdentificationParser.parseStructured(raw);
+            formatted[i] = ResponseCorpus.formatted(f.description != null ? f.description : "");
+            commonNames[i++] = f.commonName != null ? f.commonName : "Unknown plant";
+        }
+        for (String raw : descriptions) {
+            formatted[i] = ResponseCorpus.formatted(raw);
+            commonNames[i++] = "";
+        }
+    }
+
+    @Benchmark
+    public void classify(Blackhole bh) {
+        for (int i = 0; i < formatted.length; i++) {
+            bh.consume(IdentificationClassifier.classify(formatted[i], commonNames[i], 90));
+        }
+    }
+}
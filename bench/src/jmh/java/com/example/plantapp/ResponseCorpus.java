@@ -0,0 +1,47 @@
+package com.example.plantapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+//recorded gemini responses the benchmarks run on, see gemini_responses/README
+final class ResponseCorpus {
+
+    private static final String SEPARATOR = "\n---\n";
+
+    private ResponseCorpus() {}
+
+    static String[] structured() { return load("structured.txt"); }
+    static String[] descriptions() { return load("descriptions.txt"); }
+    static String[] scientificNames() { return load("scientific_names.txt"); }
+    static String[] alternates() { return load("alternates.txt"); }
+
+    //description as the result screen shows it
+    static String formatted(String rawDescription) {
+        return IdentificationParser.formatDescription(IdentificationParser.sanitizePlainTextKeepDashes(rawDescription));
+    }
+
+    private static String[] load(String name) {
+        String path = "gemini_responses/" + name;
+        try (InputStream in = ResponseCorpus.class.getClassLoader().getResourceAsStream(path)) {
+            if (in == null) throw new IllegalStateException("Missing corpus file " + path);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) out.write(buffer, 0, n);
+
+            String text = out.toString(StandardCharsets.UTF_8.name()).replace("\r\n", "\n");
+            List<String> records = new ArrayList<>();
+            for (String record : text.split(SEPARATOR)) {
+                if (!record.trim().isEmpty()) records.add(record.trim());
+            }
+            return records.toArray(new String[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.plantapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+//cleanup and parsing of model responses, each operation is one pass over its whole corpus file
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextCleanupBenchmark {
+
+    private String[] structured;
+    private String[] descriptions;
+    private String[] sanitizedDescriptions;
+    private String[] scientificNames;
+    private String[] alternates;
+
+    @Setup
+    public void setUp() {
+        structured = ResponseCorpus.structured();
+        descriptions = ResponseCorpus.descriptions();
+        scientificNames = ResponseCorpus.scientificNames();
+        alternates = ResponseCorpus.alternates();
+
+        sanitizedDescriptions = new String[descriptions.length];
+        for (int i = 0; i < descriptions.length; i++) {
+            sanitizedDescriptions[i] = IdentificationParser.sanitizePlainTextKeepDashes(descriptions[i]);
+        }
+    }
+
+    @Benchmark
+    public void stripThoughtPreamble(Blackhole bh) {
+        for (String s : descriptions) bh.consume(IdentificationParser.stripThoughtPreamble(s));
+    }
+
+    @Benchmark
+    public void sanitizeDescription(Blackhole bh) {
+        for (String s : descriptions) bh.consume(IdentificationParser.sanitizePlainTextKeepDashes(s));
+    }
+
+    @Benchmark
+    public void formatPoints(Blackhole bh) {
+        for (String s : sanitizedDescriptions) bh.consume(IdentificationParser.formatPoints(s));
+    }
+
+    //everything between the raw description and the text on the result screen
+    @Benchmark
+    public void formatDescription(Blackhole bh) {
+        for (String s : descriptions) bh.consume(ResponseCorpus.formatted(s));
+    }
+
+    @Benchmark
+    public void cleanScientificName(Blackhole bh) {
+        for (String s : scientificNames) bh.consume(IdentificationParser.parseScientificNameText(s));
+    }
+
+    @Benchmark
+    public void parseAlternatesJson(Blackhole bh) {
+        for (String s : alternates) bh.consume(IdentificationParser.parseAlternatesJson(s));
+    }
+
+    @Benchmark
+    public void parseStructured(Blackhole bh) {
+        for (String s : structured) bh.consume(IdentificationParser.parseStructured(s));
+    }
+}
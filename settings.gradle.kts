@@ -21,3 +21,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "plantapp"
 include(":app")
+include(":bench")